@@ -6,7 +6,12 @@ import org.springframework.context.annotation.Import;
 
 @SpringBootApplication
 @Import({nlp.service.controller.ServiceController.class,
+		nlp.service.controller.ProcessingJobController.class,
+		nlp.service.job.ProcessingJobManager.class,
 		nlp.service.config.ApplicationConfiguration.class,
+		nlp.service.config.MetricsConfiguration.class,
+		nlp.service.config.ContentFormatsConfiguration.class,
+		nlp.service.config.RequestHandlingConfiguration.class,
 		nlp.gate.service.GateNlpService.class})
 public class ServiceApplication {
 
@@ -0,0 +1,70 @@
+package nlp.benchmarks;
+
+import nlp.common.model.document.GenericDocument;
+import nlp.gate.processor.GateApplicationSetupParameters;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Helper functions used to set up the benchmarks.
+ */
+public class BenchmarkUtils {
+
+    /**
+     * Example clinical text snippets used to generate documents of arbitrary size.
+     */
+    private static final String[] EXAMPLE_TEXTS = {
+            "The patient was prescribed with Prozac 1 kg daily. ",
+            "Pt is 40yo mother, software engineer. HPI : Sleeping trouble on present dosage of Clonidine. ",
+            "Severe Rash on face and leg, slightly itchy. ",
+            "Meds : Vyvanse 50 mgs po at breakfast daily, Clonidine 0.2 mgs -- 1 and 1 / 2 tabs po qhs. ",
+            "HEENT : Boggy inferior turbinates, No oropharyngeal lesion. Lungs : clear Heart : Regular rhythm. ",
+            "Skin : Papular mild erythematous eruption to hairline. Follow-up as scheduled. ",
+            "Started on Aspirin 75 mg once daily and Atorvastatin 20 mg at night.\n\n"
+    };
+
+
+    /**
+     * Returns an example text of the given length (in characters).
+     */
+    public static String createText(int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; text.length() < length; ++i) {
+            text.append(EXAMPLE_TEXTS[i % EXAMPLE_TEXTS.length]);
+        }
+        text.setLength(length);
+        return text.toString();
+    }
+
+    public static GenericDocument createDocument(int length) {
+        GenericDocument doc = new GenericDocument();
+        doc.setText(createText(length));
+        return doc;
+    }
+
+    public static List<GenericDocument> createDocuments(int count, int length) {
+        List<GenericDocument> docs = new ArrayList<>();
+        for (int i = 0; i < count; ++i) {
+            docs.add(createDocument(length));
+        }
+        return docs;
+    }
+
+
+    /**
+     * Returns the path to the GATE application used in the benchmarks, by default the bundled drug-app.
+     */
+    public static String getGateAppPath() {
+        return System.getProperty("gateAppPath", "../resources/gate/drug-app/drug.gapp");
+    }
+
+    public static GateApplicationSetupParameters createGateParameters(int controllersNum, String annotationSets) {
+        GateApplicationSetupParameters params = new GateApplicationSetupParameters();
+        params.setGateAppPath(getGateAppPath());
+        params.setGateControllersNum(controllersNum);
+        params.setAnnotationSets(annotationSets);
+        return params;
+    }
+}
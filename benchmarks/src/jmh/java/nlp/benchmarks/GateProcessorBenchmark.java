@@ -0,0 +1,73 @@
+package nlp.benchmarks;
+
+import nlp.common.model.document.GenericDocument;
+import nlp.gate.processor.GateProcessor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Benchmarks of the GATE documents processing using the bundled drug-app application.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class GateProcessorBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class ProcessorState {
+        @Param({"1", "4"})
+        int controllersNum;
+
+        GateProcessor processor;
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            processor = new GateProcessor(BenchmarkUtils.createGateParameters(controllersNum, "*:Drug"));
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class DocumentState {
+        @Param({"100", "1000", "10000"})
+        int documentSize;
+
+        GenericDocument document;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            document = BenchmarkUtils.createDocument(documentSize);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class BulkState {
+        @Param({"100", "1000", "10000"})
+        int documentSize;
+
+        @Param({"1", "16", "64"})
+        int batchSize;
+
+        List<GenericDocument> documents;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            documents = BenchmarkUtils.createDocuments(batchSize, documentSize);
+        }
+    }
+
+
+    @Benchmark
+    public GenericDocument processDocument(ProcessorState processorState, DocumentState documentState) throws Exception {
+        return processorState.processor.processDocument(documentState.document, Collections.emptyMap());
+    }
+
+    @Benchmark
+    public List<GenericDocument> processDocumentsBulk(ProcessorState processorState, BulkState bulkState) throws Exception {
+        return processorState.processor.processDocumentsBulk(bulkState.documents, Collections.emptyMap());
+    }
+}
@@ -0,0 +1,120 @@
+package nlp.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gate.Corpus;
+import gate.CorpusController;
+import gate.Document;
+import gate.Factory;
+import gate.Gate;
+import gate.util.persistence.PersistenceManager;
+import nlp.common.model.annotation.GenericAnnotation;
+import nlp.gate.utils.AnnotationFilterPlan;
+import nlp.gate.utils.GateUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Benchmarks of the extraction of the annotations from documents processed by the bundled drug-app application.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@State(Scope.Benchmark)
+public class GateUtilsBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    int documentSize;
+
+    @Param({"*:Drug", ":Token", "*:*"})
+    String annotationSets;
+
+    GateUtils gateUtils = new GateUtils(false);
+
+    ObjectMapper mapper = new ObjectMapper();
+
+    Document gateDocument;
+
+    String documentText;
+
+    AnnotationFilterPlan annotationFilterPlan;
+
+    List<GenericAnnotation> annotations;
+
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        if (!Gate.isInitialised()) {
+            Gate.init();
+        }
+
+        CorpusController controller = (CorpusController) PersistenceManager
+                .loadObjectFromFile(new File(BenchmarkUtils.getGateAppPath()));
+        Corpus corpus = Factory.newCorpus("benchmarkCorpus");
+        controller.setCorpus(corpus);
+
+        documentText = BenchmarkUtils.createText(documentSize);
+        gateDocument = Factory.newDocument(documentText);
+        corpus.add(gateDocument);
+        controller.execute();
+        corpus.clear();
+
+        Factory.deleteResource(controller);
+        Factory.deleteResource(corpus);
+
+        annotationFilterPlan = gateUtils.getAnnotationFilterPlan(annotationSets);
+        annotations = gateUtils.getAtomicAnnotations(gateDocument);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Factory.deleteResource(gateDocument);
+    }
+
+
+    @Benchmark
+    public List<GenericAnnotation> getAtomicAnnotationsUnfiltered() {
+        return gateUtils.getAtomicAnnotations(gateDocument);
+    }
+
+    @Benchmark
+    public List<GenericAnnotation> getAtomicAnnotationsFiltered() {
+        // the filters are compiled once, as done by GATE Processor
+        return gateUtils.getAtomicAnnotations(gateDocument, annotationFilterPlan);
+    }
+
+    @Benchmark
+    public byte[] getAtomicAnnotationsFilteredJson() throws Exception {
+        // the Generic Annotations are created and then serialized
+        return mapper.writeValueAsBytes(gateUtils.getAtomicAnnotations(gateDocument, annotationFilterPlan));
+    }
+
+    @Benchmark
+    public byte[] getAnnotationListFilteredJson() throws Exception {
+        // the GATE annotations are serialized directly, as done by GATE Processor
+        return mapper.writeValueAsBytes(gateUtils.getAnnotationList(gateDocument, annotationFilterPlan, null));
+    }
+
+    @Benchmark
+    public List<GenericAnnotation> refineAtomicAnnotations() {
+        gateUtils.refineAtomicAnnotations(annotations, gateDocument);
+        return annotations;
+    }
+
+    @Benchmark
+    public List<GenericAnnotation> refineAtomicAnnotationsFromText() {
+        // the text is sliced from the original document text, as held by GATE Processor
+        gateUtils.refineAtomicAnnotations(annotations, documentText);
+        return annotations;
+    }
+
+    @Benchmark
+    public byte[] getAnnotationListFilteredWithTextJson() throws Exception {
+        // the annotation text is sliced only when serialized
+        return mapper.writeValueAsBytes(gateUtils.getAnnotationList(gateDocument, annotationFilterPlan, documentText));
+    }
+}
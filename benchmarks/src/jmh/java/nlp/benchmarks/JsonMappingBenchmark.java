@@ -0,0 +1,128 @@
+package nlp.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import nlp.common.model.annotation.GenericAnnotation;
+import nlp.common.model.protocol.NlpInputPayload;
+import nlp.common.model.protocol.NlpProcessingResult;
+import nlp.common.model.protocol.ServiceBulkRequestContent;
+import nlp.common.model.protocol.ServiceBulkResponseContent;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Benchmarks of the JSON (de)serialization of the bulk request and response content.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@State(Scope.Benchmark)
+public class JsonMappingBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    int documentSize;
+
+    @Param({"1", "16", "64"})
+    int batchSize;
+
+    /**
+     * The number of characters per annotation, roughly corresponding to tokens.
+     */
+    private static final int CHARS_PER_ANNOTATION = 5;
+
+    ObjectMapper mapper;
+
+    ServiceBulkRequestContent request;
+    ServiceBulkResponseContent response;
+
+    byte[] requestJson;
+    byte[] responseJson;
+
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+
+        String text = BenchmarkUtils.createText(documentSize);
+
+        List<NlpInputPayload> payloads = new ArrayList<>();
+        List<NlpProcessingResult> results = new ArrayList<>();
+        for (int i = 0; i < batchSize; ++i) {
+            NlpInputPayload payload = new NlpInputPayload();
+            payload.setText(text);
+            payload.setFooter(Map.of("document_id", Integer.toString(i)));
+            payloads.add(payload);
+
+            NlpProcessingResult result = new NlpProcessingResult();
+            result.setText(text);
+            result.setAnnotations(createAnnotations(text));
+            result.setMetadata(new HashMap<>());
+            result.setSuccess(true);
+            result.setTimestamp(OffsetDateTime.now());
+            result.setFooter(payload.getFooter());
+            results.add(result);
+        }
+
+        request = new ServiceBulkRequestContent();
+        request.setContent(payloads);
+        request.setApplicationParams(new HashMap<>());
+
+        response = new ServiceBulkResponseContent();
+        response.setResult(results);
+
+        requestJson = mapper.writeValueAsBytes(request);
+        responseJson = mapper.writeValueAsBytes(response);
+    }
+
+
+    @Benchmark
+    public byte[] serializeRequest() throws Exception {
+        return mapper.writeValueAsBytes(request);
+    }
+
+    @Benchmark
+    public ServiceBulkRequestContent deserializeRequest() throws Exception {
+        return mapper.readValue(requestJson, ServiceBulkRequestContent.class);
+    }
+
+    @Benchmark
+    public byte[] serializeResponse() throws Exception {
+        return mapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public ServiceBulkResponseContent deserializeResponse() throws Exception {
+        return mapper.readValue(responseJson, ServiceBulkResponseContent.class);
+    }
+
+
+    /**
+     * Creates token-like annotations with the typical GATE features.
+     */
+    private static List<GenericAnnotation> createAnnotations(String text) {
+        List<GenericAnnotation> annotations = new ArrayList<>();
+        for (int start = 0, id = 0; start + CHARS_PER_ANNOTATION <= text.length(); start += CHARS_PER_ANNOTATION, ++id) {
+            GenericAnnotation ann = new GenericAnnotation();
+            ann.setAttribute("type", "Token");
+            ann.setAttribute("set", "");
+            ann.setAttribute("id", id);
+            ann.setAttribute("start_idx", (long) start);
+            ann.setAttribute("end_idx", (long) start + CHARS_PER_ANNOTATION - 1);
+            ann.setAttribute("string", text.substring(start, start + CHARS_PER_ANNOTATION - 1));
+            ann.setAttribute("kind", "word");
+            ann.setAttribute("orth", "lowercase");
+            ann.setAttribute("length", Integer.toString(CHARS_PER_ANNOTATION - 1));
+            annotations.add(ann);
+        }
+        return annotations;
+    }
+}
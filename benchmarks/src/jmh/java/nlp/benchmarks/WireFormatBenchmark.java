@@ -0,0 +1,162 @@
+package nlp.benchmarks;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import nlp.common.model.document.GenericDocument;
+import nlp.common.model.protocol.NlpInputPayload;
+import nlp.common.model.protocol.NlpProcessingResult;
+import nlp.common.model.protocol.ServiceBulkRequestContent;
+import nlp.common.model.protocol.ServiceBulkResponseContent;
+import nlp.gate.processor.GateProcessor;
+import org.msgpack.jackson.dataformat.MessagePackFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.InputStream;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Benchmarks of the encoding and decoding of the bulk request and response content using JSON
+ * and the binary data formats, over the example requests from the bundled 'requests.jsonl'
+ * processed by the bundled drug-app application.
+ * The payload sizes are reported as the auxiliary counters of the benchmarks.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@State(Scope.Benchmark)
+public class WireFormatBenchmark {
+
+    @Param({"json", "cbor", "smile", "msgpack"})
+    String format;
+
+    @Param({"*:Drug", "*:*"})
+    String annotationSets;
+
+    ObjectMapper mapper;
+
+    ServiceBulkRequestContent request;
+    ServiceBulkResponseContent response;
+
+    byte[] requestBytes;
+    byte[] responseBytes;
+
+    /**
+     * The sizes (in bytes) of the encoded payloads, reported together with the benchmark results.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class PayloadSizes {
+        public long requestBytes;
+        public long responseBytes;
+    }
+
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        mapper = new ObjectMapper(createFactory(format));
+        mapper.registerModule(new JavaTimeModule());
+
+        List<NlpInputPayload> payloads = readRequests();
+
+        request = new ServiceBulkRequestContent();
+        request.setContent(payloads);
+        request.setApplicationParams(new HashMap<>());
+
+        // use the actual annotations produced by the GATE application
+        List<GenericDocument> documents = new ArrayList<>();
+        for (NlpInputPayload payload : payloads) {
+            GenericDocument doc = new GenericDocument();
+            doc.setText(payload.getText());
+            documents.add(doc);
+        }
+        GateProcessor processor = new GateProcessor(BenchmarkUtils.createGateParameters(1, annotationSets));
+        List<GenericDocument> outDocuments = processor.processDocumentsBulk(documents, Collections.emptyMap());
+
+        List<NlpProcessingResult> results = new ArrayList<>();
+        for (int i = 0; i < payloads.size(); ++i) {
+            NlpProcessingResult result = new NlpProcessingResult();
+            result.setText(outDocuments.get(i).getText());
+            result.setAnnotations(outDocuments.get(i).getAnnotations());
+            result.setMetadata(new HashMap<>());
+            result.setSuccess(true);
+            result.setTimestamp(OffsetDateTime.now());
+            result.setFooter(payloads.get(i).getFooter());
+            results.add(result);
+        }
+
+        response = new ServiceBulkResponseContent();
+        response.setResult(results);
+
+        requestBytes = mapper.writeValueAsBytes(request);
+        responseBytes = mapper.writeValueAsBytes(response);
+    }
+
+
+    @Benchmark
+    public byte[] encodeRequest(PayloadSizes sizes) throws Exception {
+        reportSizes(sizes);
+        return mapper.writeValueAsBytes(request);
+    }
+
+    @Benchmark
+    public ServiceBulkRequestContent decodeRequest(PayloadSizes sizes) throws Exception {
+        reportSizes(sizes);
+        return mapper.readValue(requestBytes, ServiceBulkRequestContent.class);
+    }
+
+    @Benchmark
+    public byte[] encodeResponse(PayloadSizes sizes) throws Exception {
+        reportSizes(sizes);
+        return mapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public ServiceBulkResponseContent decodeResponse(PayloadSizes sizes) throws Exception {
+        reportSizes(sizes);
+        return mapper.readValue(responseBytes, ServiceBulkResponseContent.class);
+    }
+
+
+    private void reportSizes(PayloadSizes sizes) {
+        sizes.requestBytes = requestBytes.length;
+        sizes.responseBytes = responseBytes.length;
+    }
+
+    private static JsonFactory createFactory(String format) {
+        switch (format) {
+            case "cbor":
+                return new CBORFactory();
+            case "smile":
+                return new SmileFactory();
+            case "msgpack":
+                return new MessagePackFactory();
+            default:
+                return new JsonFactory();
+        }
+    }
+
+    /**
+     * Reads the example requests, stored as newline-delimited JSON payloads.
+     */
+    private static List<NlpInputPayload> readRequests() throws Exception {
+        List<NlpInputPayload> payloads = new ArrayList<>();
+        try (InputStream is = WireFormatBenchmark.class.getResourceAsStream("/requests.jsonl");
+             MappingIterator<NlpInputPayload> it = new ObjectMapper().readerFor(NlpInputPayload.class).readValues(is)) {
+            while (it.hasNextValue()) {
+                payloads.add(it.nextValue());
+            }
+        }
+        return payloads;
+    }
+}
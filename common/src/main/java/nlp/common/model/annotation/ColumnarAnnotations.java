@@ -0,0 +1,310 @@
+package nlp.common.model.annotation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+import nlp.common.model.protocol.NlpProcessingResult;
+
+
+/**
+ * The compact, column-wise representation of a list of annotations.
+ * The mandatory fields are stored as parallel arrays, with the type and set names dictionary-encoded.
+ * The remaining attributes (features) are stored as columns per each annotation type, holding the values
+ * for the annotations of such type in the order of their appearance, with the feature names dictionary-encoded.
+ * The missing offsets and ids are stored as -1, the missing feature values as null.
+ */
+@Data
+public class ColumnarAnnotations {
+
+    /**
+     * The application parameter and the value used to request the columnar format.
+     */
+    public static final String ANNOTATIONS_FORMAT_PARAM = "annotationsFormat";
+    public static final String ANNOTATIONS_FORMAT = "columnar";
+
+    /**
+     * The media type used to request the columnar format.
+     */
+    public static final String MEDIA_TYPE = "application/vnd.nlp.columnar+json";
+
+    /**
+     * The mandatory annotation fields.
+     */
+    private static final String TYPE = "type";
+    private static final String SET = "set";
+    private static final String START_IDX = "start_idx";
+    private static final String END_IDX = "end_idx";
+    private static final String ID = "id";
+
+    @JsonProperty("size")
+    int size;
+
+    @JsonProperty("type_names")
+    List<String> typeNames = new ArrayList<>();
+
+    @JsonProperty("set_names")
+    List<String> setNames = new ArrayList<>();
+
+    @JsonProperty("feature_names")
+    List<String> featureNames = new ArrayList<>();
+
+    /**
+     * The indices of the type and set names, per each annotation.
+     */
+    @JsonProperty("type")
+    int[] types = new int[0];
+
+    @JsonProperty("set")
+    int[] sets = new int[0];
+
+    @JsonProperty("start_idx")
+    long[] startIdx = new long[0];
+
+    @JsonProperty("end_idx")
+    long[] endIdx = new long[0];
+
+    @JsonProperty("id")
+    int[] ids = new int[0];
+
+    /**
+     * The feature columns, per each annotation type.
+     */
+    @JsonProperty("features")
+    List<FeatureColumns> features = new ArrayList<>();
+
+
+    /**
+     * The feature columns of the annotations of a single type.
+     */
+    @Data
+    public static class FeatureColumns {
+        /**
+         * The indices of the feature names, per each column.
+         */
+        @JsonProperty("names")
+        int[] names = new int[0];
+
+        /**
+         * The feature values, per each annotation of the type.
+         */
+        @JsonProperty("columns")
+        List<List<Object>> columns = new ArrayList<>();
+    }
+
+
+    /**
+     * Checks whether the columnar format is requested in the application parameters.
+     */
+    public static boolean isRequested(Map<String, String> applicationParams) {
+        return applicationParams != null
+                && ANNOTATIONS_FORMAT.equals(applicationParams.get(ANNOTATIONS_FORMAT_PARAM));
+    }
+
+    /**
+     * Replaces the annotations in the processing result with their columnar representation.
+     */
+    public static void applyTo(NlpProcessingResult result) {
+        if (result.getAnnotations() == null)
+            return;
+
+        result.setColumnarAnnotations(encode(result.getAnnotations()));
+        result.setAnnotations(null);
+    }
+
+    /**
+     * Encodes the annotations in the columnar format.
+     * The attributes other than the mandatory fields of expected types are stored as features.
+     */
+    public static ColumnarAnnotations encode(List<GenericAnnotation> annotations) {
+        if (annotations instanceof StreamedAnnotationList) {
+            return ((StreamedAnnotationList) annotations).toColumnar();
+        }
+
+        Builder builder = new Builder(annotations.size());
+        for (GenericAnnotation ann : annotations) {
+            Map<String, Object> attributes = ann.getAttributes();
+            Object type = attributes.get(TYPE);
+            Object set = attributes.get(SET);
+            Object startIdx = attributes.get(START_IDX);
+            Object endIdx = attributes.get(END_IDX);
+            Object id = attributes.get(ID);
+
+            builder.addAnnotation(type instanceof String ? (String) type : null,
+                    set instanceof String ? (String) set : null,
+                    startIdx instanceof Number ? ((Number) startIdx).longValue() : -1,
+                    endIdx instanceof Number ? ((Number) endIdx).longValue() : -1,
+                    id instanceof Integer ? (Integer) id : -1);
+
+            for (Map.Entry<String, Object> attribute : attributes.entrySet()) {
+                String name = attribute.getKey();
+                Object value = attribute.getValue();
+                boolean isEncoded = (name.equals(TYPE) && type instanceof String)
+                        || (name.equals(SET) && set instanceof String)
+                        || (name.equals(START_IDX) && startIdx instanceof Number)
+                        || (name.equals(END_IDX) && endIdx instanceof Number)
+                        || (name.equals(ID) && id instanceof Integer);
+                if (!isEncoded) {
+                    builder.addFeature(name, value);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Decodes the annotations from the columnar format.
+     * Please note that the features with null values are not restored.
+     */
+    public List<GenericAnnotation> toAnnotations() {
+        List<GenericAnnotation> annotations = new ArrayList<>(size);
+
+        // the current row of the feature columns, per each type
+        int[] typeRows = new int[typeNames.size()];
+
+        for (int i = 0; i < size; ++i) {
+            GenericAnnotation ann = new GenericAnnotation();
+            Map<String, Object> attributes = ann.getAttributes();
+
+            if (typeNames.get(types[i]) != null)
+                attributes.put(TYPE, typeNames.get(types[i]));
+            if (setNames.get(sets[i]) != null)
+                attributes.put(SET, setNames.get(sets[i]));
+            if (startIdx[i] >= 0)
+                attributes.put(START_IDX, startIdx[i]);
+            if (endIdx[i] >= 0)
+                attributes.put(END_IDX, endIdx[i]);
+            if (ids[i] >= 0)
+                attributes.put(ID, ids[i]);
+
+            FeatureColumns typeFeatures = features.get(types[i]);
+            int row = typeRows[types[i]]++;
+            for (int k = 0; k < typeFeatures.names.length; ++k) {
+                Object value = typeFeatures.columns.get(k).get(row);
+                if (value != null)
+                    attributes.put(featureNames.get(typeFeatures.names[k]), value);
+            }
+
+            annotations.add(ann);
+        }
+        return annotations;
+    }
+
+
+    /**
+     * Builds the columnar representation, annotation by annotation.
+     */
+    public static class Builder {
+
+        private final Map<String, Integer> typeIndices = new HashMap<>();
+        private final Map<String, Integer> setIndices = new HashMap<>();
+        private final Map<String, Integer> featureIndices = new HashMap<>();
+
+        private final ColumnarAnnotations result = new ColumnarAnnotations();
+
+        /**
+         * The feature columns being built, per each type, and the number of annotations of such type.
+         */
+        private final List<Map<Integer, List<Object>>> typeColumns = new ArrayList<>();
+        private final List<Integer> typeRows = new ArrayList<>();
+
+        private Map<Integer, List<Object>> currentColumns;
+        private int currentRow;
+
+
+        public Builder(int expectedSize) {
+            result.types = new int[expectedSize];
+            result.sets = new int[expectedSize];
+            result.startIdx = new long[expectedSize];
+            result.endIdx = new long[expectedSize];
+            result.ids = new int[expectedSize];
+        }
+
+        public Builder addAnnotation(String type, String set, long startIdx, long endIdx, int id) {
+            int i = result.size++;
+            if (i == result.types.length) {
+                int capacity = Math.max(16, i * 2);
+                result.types = Arrays.copyOf(result.types, capacity);
+                result.sets = Arrays.copyOf(result.sets, capacity);
+                result.startIdx = Arrays.copyOf(result.startIdx, capacity);
+                result.endIdx = Arrays.copyOf(result.endIdx, capacity);
+                result.ids = Arrays.copyOf(result.ids, capacity);
+            }
+
+            int typeIdx = getIndex(typeIndices, result.typeNames, type);
+            if (typeIdx == typeColumns.size()) {
+                typeColumns.add(new LinkedHashMap<>());
+                typeRows.add(0);
+            }
+
+            result.types[i] = typeIdx;
+            result.sets[i] = getIndex(setIndices, result.setNames, set);
+            result.startIdx[i] = startIdx;
+            result.endIdx[i] = endIdx;
+            result.ids[i] = id;
+
+            currentColumns = typeColumns.get(typeIdx);
+            currentRow = typeRows.get(typeIdx);
+            typeRows.set(typeIdx, currentRow + 1);
+            return this;
+        }
+
+        /**
+         * Adds the feature of the last added annotation.
+         */
+        public Builder addFeature(String name, Object value) {
+            List<Object> column = currentColumns.computeIfAbsent(
+                    getIndex(featureIndices, result.featureNames, name), k -> new ArrayList<>());
+
+            // the same feature may be set again
+            if (column.size() > currentRow) {
+                column.set(currentRow, value);
+                return this;
+            }
+            while (column.size() < currentRow) {
+                column.add(null);
+            }
+            column.add(value);
+            return this;
+        }
+
+        public ColumnarAnnotations build() {
+            result.types = Arrays.copyOf(result.types, result.size);
+            result.sets = Arrays.copyOf(result.sets, result.size);
+            result.startIdx = Arrays.copyOf(result.startIdx, result.size);
+            result.endIdx = Arrays.copyOf(result.endIdx, result.size);
+            result.ids = Arrays.copyOf(result.ids, result.size);
+
+            for (int t = 0; t < typeColumns.size(); ++t) {
+                FeatureColumns typeFeatures = new FeatureColumns();
+                typeFeatures.names = new int[typeColumns.get(t).size()];
+
+                int k = 0;
+                for (Map.Entry<Integer, List<Object>> column : typeColumns.get(t).entrySet()) {
+                    // fill in the missing values at the end of the column
+                    while (column.getValue().size() < typeRows.get(t)) {
+                        column.getValue().add(null);
+                    }
+                    typeFeatures.names[k++] = column.getKey();
+                    typeFeatures.columns.add(column.getValue());
+                }
+                result.features.add(typeFeatures);
+            }
+            return result;
+        }
+
+        private static int getIndex(Map<String, Integer> indices, List<String> names, String name) {
+            Integer idx = indices.get(name);
+            if (idx == null) {
+                idx = names.size();
+                indices.put(name, idx);
+                names.add(name);
+            }
+            return idx;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package nlp.common.model.annotation;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+
+/**
+ * A read-only list of annotations backed by the NLP application-specific annotations.
+ * When serialized to JSON, the annotations are written directly from the underlying representation,
+ * without creating the intermediate Generic Annotations. The JSON output should be the same as
+ * for the list of the corresponding Generic Annotations, which are only created on access.
+ */
+@JsonSerialize(using = StreamedAnnotationList.Serializer.class)
+public abstract class StreamedAnnotationList extends AbstractList<GenericAnnotation> {
+
+    /**
+     * Writes the annotation at the given index as a JSON object.
+     */
+    protected abstract void writeAnnotation(int index,
+                                            JsonGenerator gen,
+                                            SerializerProvider provider) throws IOException;
+
+    /**
+     * Encodes the annotations in the columnar format.
+     * The implementations should encode these directly from the underlying representation.
+     */
+    public ColumnarAnnotations toColumnar() {
+        return ColumnarAnnotations.encode(new ArrayList<>(this));
+    }
+
+
+    /**
+     * The serializer writing the annotations straight to the JSON generator.
+     */
+    public static class Serializer extends StdSerializer<StreamedAnnotationList> {
+
+        public Serializer() {
+            super(StreamedAnnotationList.class);
+        }
+
+        @Override
+        public void serialize(StreamedAnnotationList annotations,
+                              JsonGenerator gen,
+                              SerializerProvider provider) throws IOException {
+            int size = annotations.size();
+            gen.writeStartArray(size);
+            for (int i = 0; i < size; ++i) {
+                annotations.writeAnnotation(i, gen, provider);
+            }
+            gen.writeEndArray();
+        }
+    }
+}
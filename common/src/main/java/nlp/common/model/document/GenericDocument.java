@@ -1,6 +1,7 @@
 package nlp.common.model.document;
 
 import nlp.common.model.annotation.GenericAnnotation;
+import nlp.common.model.annotation.StreamedAnnotationList;
 import lombok.Data;
 
 import java.util.*;
@@ -32,7 +33,7 @@ public class GenericDocument {
      * The document content in NLP application-specific binary format.
      * Can be used as a NLP content container when performing multi-step processing.
      */
-    Byte[] binaryDocument;
+    byte[] binaryDocument;
 
     /**
      * Additional linked attributes, such as record fields, etc.
@@ -41,7 +42,10 @@ public class GenericDocument {
 
 
     public void setAnnotations(List<? extends GenericAnnotation> anns) {
-        if (anns != null) {
+        // keep the annotations to be serialized directly as they are
+        if (anns instanceof StreamedAnnotationList) {
+            annotations = (StreamedAnnotationList) anns;
+        } else if (anns != null) {
             annotations = new ArrayList<>();
             annotations.addAll(anns);
         } else {
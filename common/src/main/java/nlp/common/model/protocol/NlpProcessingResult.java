@@ -9,6 +9,7 @@ import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import nlp.common.model.annotation.ColumnarAnnotations;
 import nlp.common.model.annotation.GenericAnnotation;
 import org.springframework.format.annotation.DateTimeFormat;
 
@@ -31,6 +32,12 @@ public class NlpProcessingResult {
     @JsonProperty("annotations")
     List<GenericAnnotation> annotations;
 
+    /**
+     * The resulting annotations in the columnar format, when requested instead of the list above.
+     */
+    @JsonProperty("columnar_annotations")
+    ColumnarAnnotations columnarAnnotations;
+
     /**
      * Additional data provided by the NLP application. Since the output will be
      * application-specific, we cannot enforce here any specific data types.
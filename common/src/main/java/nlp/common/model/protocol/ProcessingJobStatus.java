@@ -0,0 +1,12 @@
+package nlp.common.model.protocol;
+
+
+/**
+ * The status of an asynchronous NLP processing job.
+ */
+public enum ProcessingJobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    CANCELLED
+}
@@ -0,0 +1,51 @@
+package nlp.common.model.protocol;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+import java.util.List;
+
+
+/**
+ * The content of the Body part in HTTP request that will be output by the NLP REST service
+ * when retrieving a page of results of an asynchronous processing job.
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ServiceJobResultsContent {
+    /**
+     * The job identifier.
+     */
+    @JsonProperty("job_id")
+    String jobId;
+
+    /**
+     * The current status of the job.
+     */
+    @JsonProperty("status")
+    ProcessingJobStatus status;
+
+    /**
+     * The index of the first returned result (w.r.t. the submitted documents).
+     */
+    @JsonProperty("offset")
+    Integer offset;
+
+    /**
+     * The offset to be used to retrieve the next page of the results.
+     */
+    @JsonProperty("next_offset")
+    Integer nextOffset;
+
+    /**
+     * The NLP processing results available so far, in the order of submitted documents.
+     */
+    @JsonProperty("result")
+    List<NlpProcessingResult> result;
+
+    /**
+     * Possible error when the job could not be found.
+     */
+    @JsonProperty("error")
+    ProcessingError error;
+}
@@ -0,0 +1,68 @@
+package nlp.common.model.protocol;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+import java.time.OffsetDateTime;
+
+
+/**
+ * The content of the Body part in HTTP request that will be output by the NLP REST service
+ * when submitting or querying the status of an asynchronous processing job.
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ServiceJobStatusContent {
+    /**
+     * The job identifier.
+     */
+    @JsonProperty("job_id")
+    String jobId;
+
+    /**
+     * The current status of the job.
+     */
+    @JsonProperty("status")
+    ProcessingJobStatus status;
+
+    /**
+     * The total number of documents submitted.
+     */
+    @JsonProperty("total")
+    Integer total;
+
+    /**
+     * The number of documents already processed (incl. the failed ones).
+     * The results of these documents can be already retrieved.
+     */
+    @JsonProperty("completed")
+    Integer completed;
+
+    /**
+     * The number of documents which processing failed.
+     */
+    @JsonProperty("failed")
+    Integer failed;
+
+    /**
+     * The job submission, processing start and finish timestamps.
+     */
+    @JsonProperty("submitted_at")
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX")
+    OffsetDateTime submittedAt;
+
+    @JsonProperty("started_at")
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX")
+    OffsetDateTime startedAt;
+
+    @JsonProperty("finished_at")
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX")
+    OffsetDateTime finishedAt;
+
+    /**
+     * Possible error when the job could not be submitted or found.
+     */
+    @JsonProperty("error")
+    ProcessingError error;
+}
@@ -1,5 +1,7 @@
 package nlp.gate.data;
 
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -30,9 +32,21 @@ public class GateNlpContentDataMapper extends NlpContentDataMapper {
         if (payload.getMetadata() == null || !payload.getMetadata().containsKey("annotations"))
             return Collections.emptyList();
 
+        // the annotations are deserialized as the plain maps of attributes
         Object obj = payload.getMetadata().get("annotations");
         if (obj instanceof List) {
-            return (List<GenericAnnotation>)obj;
+            List<GenericAnnotation> annotations = new ArrayList<>();
+            for (Object ann : (List<?>) obj) {
+                if (ann instanceof GenericAnnotation) {
+                    annotations.add((GenericAnnotation) ann);
+                }
+                else if (ann instanceof Map) {
+                    GenericAnnotation genericAnn = new GenericAnnotation();
+                    ((Map<?, ?>) ann).forEach((name, value) -> genericAnn.setAttribute(name.toString(), value));
+                    annotations.add(genericAnn);
+                }
+            }
+            return annotations;
         }
 
         return Collections.emptyList();
@@ -51,17 +65,20 @@ public class GateNlpContentDataMapper extends NlpContentDataMapper {
         return Collections.emptyList();
     }
 
-    public Byte[] getBinaryDocument() {
+    public byte[] getBinaryDocument() {
         if (payload.getMetadata() == null || !payload.getMetadata().containsKey("binary_document"))
-            return ArrayUtils.toArray();
+            return ArrayUtils.EMPTY_BYTE_ARRAY;
 
+        // the binary document is encoded as Base64 string in JSON, and kept as is in the binary formats
         Object obj = payload.getMetadata().get("binary_document");
-        if (obj instanceof List) {
-            Byte[] binaryDoc = (Byte[])payload.getMetadata().get("binary_document");
-            return binaryDoc;
+        if (obj instanceof byte[]) {
+            return (byte[]) obj;
+        }
+        if (obj instanceof String) {
+            return Base64.getDecoder().decode((String) obj);
         }
 
-        return ArrayUtils.toArray();
+        return ArrayUtils.EMPTY_BYTE_ARRAY;
     }
 
     public Map<String, Object> getLinkedData() {
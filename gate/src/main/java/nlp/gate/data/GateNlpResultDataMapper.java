@@ -26,7 +26,7 @@ public class GateNlpResultDataMapper extends NlpResultDataMapper {
         result.getMetadata().put("document_features", features);
     }
 
-    public void setBinaryDocument(Byte[] binaryDoc) {
+    public void setBinaryDocument(byte[] binaryDoc) {
         result.getMetadata().put("binary_document", binaryDoc);
     }
 }
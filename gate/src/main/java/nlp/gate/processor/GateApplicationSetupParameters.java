@@ -1,5 +1,7 @@
 package nlp.gate.processor;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import lombok.Data;
 
 
@@ -11,7 +13,72 @@ public class GateApplicationSetupParameters {
     // Starting from GATE 8.5 GATE_HOME is no longer needed
     //String gateHome;
     String gateAppPath;
+    String appVersion;
     int gateControllersNum;
+
+    // the number of controllers needed to start processing, the remaining ones are created in the background
+    int gateControllersReadyNum;
+
+    // warm-up of the controllers using the sample documents (or the bundled one), disabled when max iterations is 0
+    int warmupMaxIterations;
+    String warmupDocumentsPath;
+
+    // elastic controllers pool, fixed-size when max num is not greater than controllers num
+    int gateControllersMaxNum;
+    long gateControllersGrowWaitMs;
+    long gateControllersIdleTimeoutMs;
     String annotationSets;
     boolean includeAnotationText;
+
+    // the output annotation types (e.g. ":Token, :SpaceToken") of the processing resources to be skipped
+    // when already present in the documents, by the resource names, none skipped when not provided
+    Map<String, String> skippableResources = new LinkedHashMap<>();
+
+    // restoring of the binary documents provided by the clients, disabled by default as these are deserialized,
+    // with the classes allowed, the GATE document and basic Java ones within the graph limits if not provided
+    boolean binaryDocumentInput;
+    String binaryDocumentFilter;
+
+    // batching of concurrently processed single documents, disabled when window is 0
+    int batchWindowMs;
+    int batchMaxDocuments;
+
+    // packing of the bulk documents into sub-batches by the number of characters, not limited when 0
+    int batchMaxChars;
+
+    // size-aware scheduling of the documents waiting for the controllers (shortest first), disabled when 0
+    long schedulingAgingCharsPerMs;
+
+    // request classes (lanes) with the reserved controllers and the limits, a single class when not provided
+    Map<String, RequestClassParameters> requestClasses = new LinkedHashMap<>();
+    String defaultRequestClass;
+
+    // admission control of the requests waiting for the controllers, disabled when max queued and max wait are 0
+    int admissionMaxQueued;
+    long admissionMaxWaitMs;
+
+    // processing timeouts, the controllers not completing on time are interrupted, disabled when 0
+    long documentTimeoutMs;
+    long requestTimeoutMs;
+
+    // splitting of the long documents into overlapping chunks processed in parallel, disabled when max chars is 0
+    int chunkMaxChars;
+    int chunkOverlapChars;
+
+    // cache of the processed documents, disabled when max entries is 0
+    int cacheMaxEntries;
+    String cacheDiskPath;
+    int cacheDiskMaxEntries;
+
+
+    /**
+     * The request class parameters: the number of controllers reserved for the class, the max number of controllers
+     * it can use (all when 0) and the max number of its requests waiting for the controllers (not limited when 0).
+     */
+    @Data
+    public static class RequestClassParameters {
+        int reservedControllers;
+        int maxControllers;
+        int maxQueued;
+    }
 }
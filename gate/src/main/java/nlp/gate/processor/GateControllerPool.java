@@ -0,0 +1,687 @@
+package nlp.gate.processor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import gate.Controller;
+import gate.Corpus;
+import gate.CorpusController;
+import gate.Document;
+import gate.Factory;
+import gate.ProcessingResource;
+import gate.creole.ExecutionInterruptedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import nlp.service.processor.ProcessingTimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Pool of GATE corpus controllers used for parallel processing of documents.
+ * The pool size is kept between the min and max bounds: when waiting for an available controller
+ * takes longer than the threshold, a new controller is duplicated from the template; the controllers
+ * which stay idle for longer than the timeout are released.
+ * When the pool can grow, the template controller is not used for processing, so that it can be
+ * safely duplicated at any time.
+ * On startup, the controllers are duplicated in parallel and the pool is ready once the first controllers
+ * are available, with the remaining ones created in the background.
+ * The controllers can be warmed up before being made available for processing.
+ * The controllers which do not complete the processing on time are interrupted and, if they do not stop
+ * or fail to stop cleanly, replaced by new ones (duplicated from the template when the pool can grow,
+ * otherwise loaded from the application), so that the pool capacity is kept. The documents processed
+ * by the interrupted controllers are released by the pool only once these stop.
+ */
+public class GateControllerPool {
+
+    /**
+     * Warms up the controller before it is made available for processing.
+     */
+    @FunctionalInterface
+    public interface ControllerWarmup {
+        void warmUp(CorpusController controller);
+    }
+
+    /**
+     * Loads a new controller from the application, used when the template may be in use for processing.
+     */
+    @FunctionalInterface
+    public interface ControllerLoader {
+        CorpusController load() throws Exception;
+    }
+
+    /**
+     * No limit on the controller execution time.
+     */
+    public static final long NO_TIMEOUT = Long.MAX_VALUE;
+
+    /**
+     * For how long to wait for the interrupted controller to stop before replacing it.
+     */
+    private static final long INTERRUPT_GRACE_MS = 1000;
+
+    /**
+     * Idle controller with the time it was returned to the pool.
+     */
+    private static class IdleController {
+        final CorpusController controller;
+        final long idleSince;
+
+        IdleController(CorpusController controller) {
+            this.controller = controller;
+            this.idleSince = System.currentTimeMillis();
+        }
+    }
+
+    private final CorpusController template;
+
+    private final ControllerLoader loader;
+
+    private final int minSize;
+
+    /**
+     * The number of controllers needed for the pool to be ready.
+     */
+    private final int readySize;
+
+    private final int maxSize;
+
+    private final long growWaitMs;
+
+    private final long idleTimeoutMs;
+
+    private final ControllerWarmup warmup;
+
+    /**
+     * The idle controllers, the most recently used ones at the head.
+     */
+    private final LinkedBlockingDeque<IdleController> idleControllers = new LinkedBlockingDeque<>();
+
+    /**
+     * The number of controllers in the pool, both idle and busy.
+     */
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * The number of controllers still being created on startup, included in the pool size.
+     */
+    private final AtomicInteger startingCount = new AtomicInteger();
+
+    private final AtomicInteger controllerCounter = new AtomicInteger();
+
+    private final AtomicBoolean growing = new AtomicBoolean(false);
+
+    /**
+     * The controllers interrupted on timeout, kept out of the pool until recovered or replaced.
+     */
+    private final Set<CorpusController> interruptedControllers = ConcurrentHashMap.newKeySet();
+
+    private ExecutorService growExecutor;
+
+    /**
+     * Executor running the controllers with limited execution time, unbounded as the interrupted controllers
+     * may keep their threads busy.
+     */
+    private ExecutorService executionExecutor;
+
+    private ScheduledExecutorService shrinkExecutor;
+
+    private Counter createdCounter;
+    private Counter destroyedCounter;
+    private Counter timeoutsCounter;
+    private Counter rebuiltCounter;
+
+    private Logger log = LoggerFactory.getLogger(GateControllerPool.class);
+
+
+    public GateControllerPool(CorpusController template, ControllerLoader loader,
+                              int minSize, int readySize, int maxSize,
+                              long growWaitMs, long idleTimeoutMs, ControllerWarmup warmup,
+                              MeterRegistry meterRegistry) throws Exception {
+        this.template = template;
+        this.loader = loader;
+        this.minSize = minSize;
+        this.readySize = readySize > 0 ? Math.min(readySize, minSize) : minSize;
+        this.maxSize = Math.max(minSize, maxSize);
+        this.growWaitMs = growWaitMs;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.warmup = warmup;
+
+        initMetrics(meterRegistry);
+        initExecution();
+
+        initControllers();
+
+        if (isElastic()) {
+            initElasticity();
+        }
+    }
+
+
+    /**
+     * Takes a controller from the pool, waiting until one is available.
+     */
+    public CorpusController acquire() throws InterruptedException {
+        IdleController idle = idleControllers.pollFirst();
+        if (idle != null) {
+            return idle.controller;
+        }
+
+        if (isElastic()) {
+            // grow the pool if no controller becomes available on time
+            idle = idleControllers.pollFirst(growWaitMs, TimeUnit.MILLISECONDS);
+            while (idle == null) {
+                grow();
+                idle = idleControllers.pollFirst(growWaitMs, TimeUnit.MILLISECONDS);
+            }
+            return idle.controller;
+        }
+
+        return idleControllers.takeFirst().controller;
+    }
+
+    /**
+     * Takes a controller from the pool, waiting up to the specified time, or returns null on timeout.
+     */
+    public CorpusController acquire(long timeout, TimeUnit unit) throws InterruptedException {
+        IdleController idle = idleControllers.pollFirst();
+        if (idle != null) {
+            return idle.controller;
+        }
+
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        if (isElastic()) {
+            // grow the pool if no controller becomes available on time
+            long growWaitNanos = TimeUnit.MILLISECONDS.toNanos(growWaitMs);
+            while (true) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return null;
+                }
+                idle = idleControllers.pollFirst(Math.min(growWaitNanos, remaining), TimeUnit.NANOSECONDS);
+                if (idle != null) {
+                    return idle.controller;
+                }
+                grow();
+            }
+        }
+
+        idle = idleControllers.pollFirst(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        return idle != null ? idle.controller : null;
+    }
+
+    /**
+     * Returns the controller back to the pool, unless it was interrupted on timeout. The controller
+     * interrupted on timeout must not be released by the caller, as it may have been recovered already.
+     */
+    public void release(CorpusController controller) {
+        if (interruptedControllers.contains(controller)) {
+            return;
+        }
+        idleControllers.addFirst(new IdleController(controller));
+    }
+
+
+    /**
+     * Runs the controller over the documents, interrupting it when not completed within the timeout (in ns).
+     * The interrupted controller is taken out of the pool: it is returned back once stopped cleanly,
+     * otherwise it is replaced by a new controller.
+     * When interrupted, the execution fails with ProcessingTimeoutException or InterruptedException
+     * and both the controller and the documents are handed over to the pool, which releases the documents
+     * once the controller stops, so these must not be used or released by the caller anymore.
+     */
+    public void execute(CorpusController controller, List<Document> documents, long timeoutNanos) throws Exception {
+        if (timeoutNanos == NO_TIMEOUT) {
+            runController(controller, documents);
+            return;
+        }
+
+        Future<?> execution = executionExecutor.submit(() -> {
+            runController(controller, documents);
+            return null;
+        });
+
+        try {
+            execution.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+        catch (TimeoutException e) {
+            interrupt(controller, execution, documents);
+            throw new ProcessingTimeoutException("GATE controller execution not completed within "
+                    + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " ms");
+        }
+        catch (InterruptedException e) {
+            interrupt(controller, execution, documents);
+            throw e;
+        }
+    }
+
+
+    public int getSize() {
+        return size.get();
+    }
+
+    public int getIdleCount() {
+        return idleControllers.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public boolean isElastic() {
+        return maxSize > minSize;
+    }
+
+    /**
+     * Checks whether enough controllers are available to start processing.
+     */
+    public boolean isReady() {
+        return size.get() - startingCount.get() >= readySize;
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", getSize());
+        stats.put("idle", getIdleCount());
+        stats.put("min_size", minSize);
+        stats.put("ready_size", readySize);
+        stats.put("ready", isReady());
+        stats.put("max_size", maxSize);
+        stats.put("created", (long) createdCounter.count());
+        stats.put("destroyed", (long) destroyedCounter.count());
+        stats.put("timeouts", (long) timeoutsCounter.count());
+        stats.put("rebuilt", (long) rebuiltCounter.count());
+        return stats;
+    }
+
+
+    /**
+     * Creates the initial controllers, duplicating these in parallel. Returns once the controllers needed
+     * for readiness are available, the remaining ones are created in the background.
+     */
+    private void initControllers() throws Exception {
+        long startTime = System.currentTimeMillis();
+
+        // in case of fixed-size pool, the template is used for processing as well, but only once
+        // all the controllers are duplicated
+        int numDuplicates = minSize;
+        if (!isElastic()) {
+            template.setName("GateCorpusController-" + controllerCounter.getAndIncrement());
+            numDuplicates = minSize - 1;
+        }
+        int numReady = Math.min(readySize, numDuplicates);
+
+        size.addAndGet(minSize);
+        startingCount.addAndGet(minSize);
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService startupExecutor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(numDuplicates, Runtime.getRuntime().availableProcessors())), runnable -> {
+                    Thread thread = new Thread(runnable, "GateControllerPoolStartup-" + threadCounter.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        CompletionService<CorpusController> duplicates = new ExecutorCompletionService<>(startupExecutor);
+        for (int i = 0; i < numDuplicates; ++i) {
+            duplicates.submit(this::createController);
+        }
+
+        // wait for the controllers needed for readiness
+        try {
+            for (int i = 0; i < numReady; ++i) {
+                publishStarted(duplicates.take().get());
+            }
+        }
+        catch (ExecutionException e) {
+            startupExecutor.shutdownNow();
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+
+        int numRemaining = numDuplicates - numReady;
+        if (numRemaining == 0) {
+            completeStartup(duplicates, 0, startTime);
+            startupExecutor.shutdown();
+            return;
+        }
+
+        log.info("GATE controllers pool ready with: " + numReady + " controllers in "
+                + (System.currentTimeMillis() - startTime) + " ms, creating remaining: " + numRemaining);
+
+        // all the duplication tasks have already started when this one runs
+        startupExecutor.execute(() -> {
+            completeStartup(duplicates, numRemaining, startTime);
+            startupExecutor.shutdown();
+        });
+    }
+
+    /**
+     * Waits for the remaining controllers created on startup, publishing also the template in case of fixed-size pool.
+     */
+    private void completeStartup(CompletionService<CorpusController> duplicates, int numRemaining, long startTime) {
+        for (int i = 0; i < numRemaining; ++i) {
+            try {
+                publishStarted(duplicates.take().get());
+            }
+            catch (ExecutionException e) {
+                startingCount.decrementAndGet();
+                size.decrementAndGet();
+                log.error("Error creating GATE controller: " + e.getCause().getMessage());
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+
+        if (!isElastic()) {
+            if (warmup != null) {
+                warmup.warmUp(template);
+            }
+            publishStarted(template);
+        }
+
+        log.info("GATE controllers pool started with size: " + size.get() + " in "
+                + (System.currentTimeMillis() - startTime) + " ms");
+    }
+
+    private void publishStarted(CorpusController controller) {
+        idleControllers.add(new IdleController(controller));
+        startingCount.decrementAndGet();
+    }
+
+
+    /**
+     * Creates a new controller as a duplicate of the template, warmed up if enabled.
+     * As the corpus is not duplicated, each controller needs its own.
+     */
+    private CorpusController createController() throws Exception {
+        long startTime = System.currentTimeMillis();
+        return initController((CorpusController) Factory.duplicate(template), startTime);
+    }
+
+    /**
+     * Creates a new controller loaded from the application, warmed up if enabled.
+     */
+    private CorpusController loadController() throws Exception {
+        long startTime = System.currentTimeMillis();
+        return initController(loader.load(), startTime);
+    }
+
+    private CorpusController initController(CorpusController controller, long startTime) throws Exception {
+        int controllerIdx = controllerCounter.getAndIncrement();
+        controller.setName("GateCorpusController-" + controllerIdx);
+        controller.setCorpus(Factory.newCorpus("defaultCorpus-" + controllerIdx));
+
+        createdCounter.increment();
+        log.info("Created GATE controller: " + controller.getName()
+                + " in " + (System.currentTimeMillis() - startTime) + " ms");
+
+        if (warmup != null) {
+            warmup.warmUp(controller);
+        }
+        return controller;
+    }
+
+    /**
+     * Releases the controller together with its processing resources and the corpus.
+     */
+    private void destroyController(CorpusController controller) {
+        Corpus corpus = controller.getCorpus();
+        deleteController(controller);
+        Factory.deleteResource(corpus);
+
+        destroyedCounter.increment();
+        log.info("Released GATE controller: " + controller.getName());
+    }
+
+    private static void deleteController(Controller controller) {
+        List<ProcessingResource> prs = new ArrayList<>(controller.getPRs());
+        Factory.deleteResource(controller);
+        for (ProcessingResource pr : prs) {
+            if (pr instanceof Controller) {
+                deleteController((Controller) pr);
+            } else {
+                Factory.deleteResource(pr);
+            }
+        }
+    }
+
+
+    private static void runController(CorpusController controller, List<Document> documents) throws Exception {
+        Corpus corpus = controller.getCorpus();
+        try {
+            corpus.addAll(documents);
+            controller.execute();
+        }
+        finally {
+            corpus.clear();
+        }
+    }
+
+    /**
+     * Interrupts the controller and takes it out of the pool until it is recovered,
+     * together with the documents it processes.
+     */
+    private void interrupt(CorpusController controller, Future<?> execution, List<Document> documents) {
+        timeoutsCounter.increment();
+        interruptedControllers.add(controller);
+        log.info("Interrupting GATE controller: " + controller.getName());
+
+        controller.interrupt();
+        List<Document> interruptedDocuments = new ArrayList<>(documents);
+        executionExecutor.execute(() -> recover(controller, execution, interruptedDocuments));
+    }
+
+    /**
+     * Returns the interrupted controller back to the pool once it has stopped cleanly,
+     * otherwise replaces it with a new one and releases it once (if ever) it stops.
+     * The documents are released only once the controller has stopped, as it may still be processing these.
+     */
+    private void recover(CorpusController controller, Future<?> execution, List<Document> documents) {
+        boolean stopped;
+        try {
+            execution.get(INTERRUPT_GRACE_MS, TimeUnit.MILLISECONDS);
+            stopped = true;
+        }
+        catch (ExecutionException e) {
+            // the controller is expected to stop on interruption, any other error may leave it in a bad state
+            stopped = e.getCause() instanceof ExecutionInterruptedException;
+        }
+        catch (TimeoutException e) {
+            stopped = false;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        if (stopped) {
+            deleteDocuments(documents);
+            interruptedControllers.remove(controller);
+            release(controller);
+            log.info("Recovered interrupted GATE controller: " + controller.getName());
+            return;
+        }
+
+        // keep the pool size, the template can be duplicated only when not used for processing,
+        // otherwise the new controller is loaded, as the template may be busy or the stuck controller itself
+        try {
+            CorpusController replacement = isElastic() ? createController() : loadController();
+            rebuiltCounter.increment();
+            release(replacement);
+            log.info("Replaced interrupted GATE controller: " + controller.getName()
+                    + " with: " + replacement.getName());
+        }
+        catch (Exception e) {
+            size.decrementAndGet();
+            log.error("Error replacing interrupted GATE controller: " + e.getMessage());
+        }
+
+        try {
+            execution.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        catch (ExecutionException e) {
+            // already handled
+        }
+        deleteDocuments(documents);
+        interruptedControllers.remove(controller);
+
+        // the template of the fixed-size pool is no longer duplicated once started, hence can be released too
+        try {
+            destroyController(controller);
+        }
+        catch (Exception e) {
+            log.error("Error releasing GATE controller: " + e.getMessage());
+        }
+    }
+
+    private void deleteDocuments(List<Document> documents) {
+        for (Document doc : documents) {
+            try {
+                Factory.deleteResource(doc);
+            }
+            catch (Exception e) {
+                log.error("Error releasing GATE document: " + e.getMessage());
+            }
+        }
+    }
+
+
+    /**
+     * Grows the pool by a single controller in the background, unless already growing or at max size.
+     */
+    private void grow() {
+        if (!growing.compareAndSet(false, true)) {
+            return;
+        }
+
+        if (size.get() >= maxSize) {
+            growing.set(false);
+            return;
+        }
+
+        size.incrementAndGet();
+        growExecutor.execute(() -> {
+            try {
+                release(createController());
+                log.info("GATE controllers pool grown to: " + size.get());
+            }
+            catch (Exception e) {
+                size.decrementAndGet();
+                log.error("Error creating GATE controller: " + e.getMessage());
+            }
+            finally {
+                growing.set(false);
+            }
+        });
+    }
+
+    /**
+     * Releases the controllers that stayed idle for longer than the timeout, down to the min size.
+     */
+    private void shrink() {
+        long expiryTime = System.currentTimeMillis() - idleTimeoutMs;
+        while (size.get() > minSize) {
+            // the least recently used controllers are at the tail
+            IdleController idle = idleControllers.pollLast();
+            if (idle == null) {
+                return;
+            }
+            if (idle.idleSince > expiryTime) {
+                idleControllers.addLast(idle);
+                return;
+            }
+
+            size.decrementAndGet();
+            try {
+                destroyController(idle.controller);
+            }
+            catch (Exception e) {
+                log.error("Error releasing GATE controller: " + e.getMessage());
+            }
+            log.info("GATE controllers pool shrunk to: " + size.get());
+        }
+    }
+
+
+    private void initElasticity() {
+        growExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "GateControllerPoolGrow");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        shrinkExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "GateControllerPoolShrink");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long shrinkPeriodMs = Math.max(1000, idleTimeoutMs / 2);
+        shrinkExecutor.scheduleWithFixedDelay(this::shrink, shrinkPeriodMs, shrinkPeriodMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void initExecution() {
+        AtomicInteger threadCounter = new AtomicInteger();
+        executionExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "GateControllerExecution-" + threadCounter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private void initMetrics(MeterRegistry meterRegistry) {
+        createdCounter = Counter.builder("gate.controllers.created")
+                .description("Number of GATE controllers created")
+                .register(meterRegistry);
+        destroyedCounter = Counter.builder("gate.controllers.destroyed")
+                .description("Number of GATE controllers released")
+                .register(meterRegistry);
+        timeoutsCounter = Counter.builder("gate.controllers.timeouts")
+                .description("Number of GATE controllers interrupted on execution timeout")
+                .register(meterRegistry);
+        rebuiltCounter = Counter.builder("gate.controllers.rebuilt")
+                .description("Number of interrupted GATE controllers replaced by new ones")
+                .register(meterRegistry);
+
+        Gauge.builder("gate.controllers.size", this, GateControllerPool::getSize)
+                .description("Number of GATE controllers in the pool")
+                .register(meterRegistry);
+        Gauge.builder("gate.controllers.idle", this, GateControllerPool::getIdleCount)
+                .description("Number of idle GATE controllers")
+                .register(meterRegistry);
+        Gauge.builder("gate.controllers.busy", this, pool -> pool.getSize() - pool.getIdleCount())
+                .description("Number of busy GATE controllers")
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,150 @@
+package nlp.gate.processor;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import gate.Corpus;
+import gate.CorpusController;
+import gate.Document;
+import gate.Factory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Warms up the GATE controllers before these are used for processing, by running the sample documents
+ * repeatedly until the execution time settles, so that the JIT compilation, class loading and the lazy
+ * initialization of the processing resources do not affect the first processed documents.
+ */
+public class GateControllerWarmup {
+
+    /**
+     * The sample document bundled with the service, used when no documents are configured.
+     */
+    private static final String BUNDLED_DOCUMENT = "/warmup/sample-document.txt";
+
+    /**
+     * The execution time is considered settled when changing by less than 10% between the iterations.
+     */
+    private static final double SETTLED_TIME_CHANGE = 0.1;
+
+    private final List<String> texts;
+
+    private final int maxIterations;
+
+    private MeterRegistry meterRegistry;
+    private Timer warmupTimer;
+
+    private Logger log = LoggerFactory.getLogger(GateControllerWarmup.class);
+
+
+    public GateControllerWarmup(String documentsPath, int maxIterations, MeterRegistry meterRegistry) throws Exception {
+        this.texts = loadDocuments(documentsPath);
+        this.maxIterations = Math.max(1, maxIterations);
+
+        this.meterRegistry = meterRegistry;
+        warmupTimer = Timer.builder("gate.controllers.warmup")
+                .description("Time spent warming up GATE controllers")
+                .register(meterRegistry);
+    }
+
+
+    /**
+     * Runs the sample documents through the controller until the execution time settles,
+     * but no more than the max iterations. The errors are only logged, as the controller may still be used.
+     */
+    public void warmUp(CorpusController controller) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        long previousTime = 0;
+        long time = 0;
+        int iteration = 0;
+        try {
+            while (iteration < maxIterations) {
+                time = runDocuments(controller);
+                ++iteration;
+
+                if (previousTime > 0 && Math.abs(time - previousTime) <= SETTLED_TIME_CHANGE * previousTime) {
+                    break;
+                }
+                previousTime = time;
+            }
+
+            log.info("Warmed up GATE controller: " + controller.getName() + " in " + iteration
+                    + " iterations, last execution time: " + TimeUnit.NANOSECONDS.toMillis(time) + " ms");
+        }
+        catch (Exception e) {
+            log.error("Error warming up GATE controller: " + controller.getName() + ": " + e.getMessage());
+        }
+        finally {
+            sample.stop(warmupTimer);
+        }
+    }
+
+
+    /**
+     * Runs the controller over the sample documents, returning the execution time (in ns).
+     */
+    private long runDocuments(CorpusController controller) throws Exception {
+        List<Document> documents = new ArrayList<>();
+        Corpus corpus = controller.getCorpus();
+        try {
+            for (String text : texts) {
+                documents.add(Factory.newDocument(text));
+            }
+
+            long startTime = System.nanoTime();
+            corpus.addAll(documents);
+            controller.execute();
+            return System.nanoTime() - startTime;
+        }
+        finally {
+            corpus.clear();
+            for (Document doc : documents) {
+                Factory.deleteResource(doc);
+            }
+        }
+    }
+
+
+    /**
+     * Loads the sample documents from the file or all the files in the directory,
+     * or the bundled document when no path is provided.
+     */
+    private static List<String> loadDocuments(String documentsPath) throws Exception {
+        List<String> texts = new ArrayList<>();
+
+        if (documentsPath == null || documentsPath.isEmpty()) {
+            try (InputStream is = GateControllerWarmup.class.getResourceAsStream(BUNDLED_DOCUMENT)) {
+                texts.add(new String(is.readAllBytes(), StandardCharsets.UTF_8));
+            }
+            return texts;
+        }
+
+        File path = new File(documentsPath);
+        File[] files = path.isDirectory() ? path.listFiles(File::isFile) : new File[] {path};
+        if (files == null || files.length == 0) {
+            throw new IllegalArgumentException("No warm-up documents found in: " + documentsPath);
+        }
+
+        Arrays.sort(files);
+        for (File file : files) {
+            String text = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            // GATE controllers do not handle the blank documents
+            if (!text.trim().isEmpty()) {
+                texts.add(text);
+            }
+        }
+
+        if (texts.isEmpty()) {
+            throw new IllegalArgumentException("No non-blank warm-up documents found in: " + documentsPath);
+        }
+        return texts;
+    }
+}
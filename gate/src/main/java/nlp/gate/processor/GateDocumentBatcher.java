@@ -0,0 +1,239 @@
+package nlp.gate.processor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import nlp.common.model.document.GenericDocument;
+import nlp.service.processor.NlpProcessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Collects the documents submitted concurrently for processing within a short time window
+ * (or up to a maximum number of documents) and processes them together as a single batch,
+ * so that the per-execution overhead of GATE controller is paid only once per batch.
+ */
+public class GateDocumentBatcher {
+
+    /**
+     * Processes a batch of documents, returning the output documents in the same order.
+     * The wait for the GATE controller is limited since the wait start.
+     */
+    @FunctionalInterface
+    public interface BatchProcessor {
+        List<GenericDocument> process(List<GenericDocument> documents,
+                                      Map<String, String> runtimeParams,
+                                      long deadline, long waitStart) throws Exception;
+    }
+
+    /**
+     * Document waiting to be processed.
+     */
+    private static class PendingDocument {
+        final GenericDocument document;
+        final Map<String, String> runtimeParams;
+        final long deadline;
+        final long waitStart = System.nanoTime();
+        final CompletableFuture<GenericDocument> result = new CompletableFuture<>();
+
+        PendingDocument(GenericDocument document, Map<String, String> runtimeParams, long deadline) {
+            this.document = document;
+            this.runtimeParams = runtimeParams;
+            this.deadline = deadline;
+        }
+    }
+
+    private final long windowNanos;
+
+    private final int maxDocuments;
+
+    private final GateTaskScheduler executor;
+
+    private final GateRequestAdmission admission;
+
+    private final BatchProcessor batchProcessor;
+
+    private final BlockingQueue<PendingDocument> pendingDocuments = new LinkedBlockingQueue<>();
+
+    private Logger log = LoggerFactory.getLogger(GateDocumentBatcher.class);
+
+
+    public GateDocumentBatcher(long windowMs, int maxDocuments, GateTaskScheduler executor,
+                               GateRequestAdmission admission, BatchProcessor batchProcessor) {
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        this.maxDocuments = Math.max(1, maxDocuments);
+        this.executor = executor;
+        this.admission = admission;
+        this.batchProcessor = batchProcessor;
+
+        Thread dispatcher = new Thread(this::dispatch, "GateDocumentBatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+
+    /**
+     * Submits the document for processing within the next batch, until the deadline
+     * (as provided by the admission control).
+     */
+    public CompletableFuture<GenericDocument> submit(GenericDocument document,
+                                                     Map<String, String> runtimeParams,
+                                                     long deadline) {
+        PendingDocument pending = new PendingDocument(document, runtimeParams, deadline);
+        pendingDocuments.add(pending);
+        return pending.result;
+    }
+
+
+    /**
+     * Collects the pending documents into batches and submits them for processing.
+     */
+    private void dispatch() {
+        while (!Thread.currentThread().isInterrupted()) {
+            List<PendingDocument> batch = new ArrayList<>();
+            try {
+                // the time window starts with the first document in the batch
+                //
+                batch.add(pendingDocuments.take());
+                long deadline = System.nanoTime() + windowNanos;
+
+                while (batch.size() < maxDocuments) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        pendingDocuments.drainTo(batch, maxDocuments - batch.size());
+                        break;
+                    }
+                    PendingDocument pending = pendingDocuments.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (pending == null) {
+                        break;
+                    }
+                    batch.add(pending);
+                }
+
+                // only the documents sharing the same runtime parameters can be processed together
+                //
+                Map<Map<String, String>, List<PendingDocument>> batchesByParams = new LinkedHashMap<>();
+                for (PendingDocument pending : batch) {
+                    batchesByParams.computeIfAbsent(pending.runtimeParams, k -> new ArrayList<>()).add(pending);
+                }
+                batchesByParams.forEach((runtimeParams, paramsBatch) ->
+                        executor.execute(() -> processBatch(paramsBatch), getCharacters(paramsBatch),
+                                runtimeParams != null ? runtimeParams.get(NlpProcessor.REQUEST_CLASS_PARAM) : null,
+                                getExpiryTime(paramsBatch), () -> rejectBatch(paramsBatch)));
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            catch (Exception e) {
+                log.error("Error dispatching documents batch for processing: " + e.getMessage());
+                batch.forEach(pending -> pending.result.completeExceptionally(e));
+            }
+        }
+    }
+
+    private static long getCharacters(List<PendingDocument> batch) {
+        long chars = 0;
+        for (PendingDocument pending : batch) {
+            chars += pending.document.getText().length();
+        }
+        return chars;
+    }
+
+    /**
+     * Returns until when the batch can wait in the executor queue, i.e. the latest max wait or deadline
+     * of its documents.
+     */
+    private long getExpiryTime(List<PendingDocument> batch) {
+        long expiryTime = Long.MIN_VALUE;
+        for (PendingDocument pending : batch) {
+            long waitDeadline = admission.getWaitDeadline(pending.deadline, pending.waitStart);
+            if (waitDeadline == GateRequestAdmission.NO_DEADLINE) {
+                return GateTaskScheduler.NO_EXPIRY;
+            }
+            expiryTime = Math.max(expiryTime, waitDeadline);
+        }
+        return expiryTime;
+    }
+
+    /**
+     * Rejects the batch which waited for too long in the executor queue.
+     */
+    private void rejectBatch(List<PendingDocument> batch) {
+        batch.forEach(pending -> pending.result.completeExceptionally(admission.rejectTimedOut()));
+    }
+
+    /**
+     * Processes the batch and hands the output documents to the waiting callers.
+     */
+    private void processBatch(List<PendingDocument> pendingBatch) {
+        // drop the documents which waited for too long, the batch is processed until the earliest deadline,
+        // so that no caller gets its result late, and waits for the controller since the latest submitted document
+        //
+        List<PendingDocument> batch = new ArrayList<>();
+        long deadline = GateRequestAdmission.NO_DEADLINE;
+        long waitStart = Long.MIN_VALUE;
+        for (PendingDocument pending : pendingBatch) {
+            long waitDeadline = admission.getWaitDeadline(pending.deadline, pending.waitStart);
+            if (waitDeadline != GateRequestAdmission.NO_DEADLINE && waitDeadline - System.nanoTime() <= 0) {
+                pending.result.completeExceptionally(admission.rejectTimedOut());
+                continue;
+            }
+            batch.add(pending);
+            deadline = Math.min(deadline, pending.deadline);
+            waitStart = Math.max(waitStart, pending.waitStart);
+        }
+
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<GenericDocument> documents = new ArrayList<>();
+        batch.forEach(pending -> documents.add(pending.document));
+
+        try {
+            List<GenericDocument> outDocuments = batchProcessor.process(documents, batch.get(0).runtimeParams, deadline, waitStart);
+            for (int i = 0; i < batch.size(); ++i) {
+                batch.get(i).result.complete(outDocuments.get(i));
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            batch.forEach(pending -> pending.result.completeExceptionally(e));
+        }
+        catch (Exception e) {
+            if (batch.size() == 1) {
+                batch.get(0).result.completeExceptionally(e);
+                return;
+            }
+
+            // a single failing or slow document should not fail the other callers, hence the documents
+            // are re-run one by one, each within its own deadline
+            log.info("Processing documents batch failed: " + e.getMessage()
+                    + ", re-running the " + batch.size() + " documents one by one");
+            batch.forEach(this::processDocument);
+        }
+    }
+
+    /**
+     * Processes the single document of the failed batch and hands the output document to the waiting caller.
+     */
+    private void processDocument(PendingDocument pending) {
+        try {
+            List<GenericDocument> outDocuments = batchProcessor.process(List.of(pending.document),
+                    pending.runtimeParams, pending.deadline, pending.waitStart);
+            pending.result.complete(outDocuments.get(0));
+        }
+        catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            pending.result.completeExceptionally(e);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package nlp.gate.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+import nlp.common.model.annotation.GenericAnnotation;
+import nlp.common.model.document.GenericDocument;
+
+
+/**
+ * Splits the long documents into overlapping chunks, so that these can be processed in parallel
+ * by the GATE controllers, and merges the chunks processed back into a single document.
+ * The chunks are split at the paragraph, sentence or word boundaries (in the order of preference).
+ * Each chunk consists of the core part, which annotations are kept, extended by the overlap on both sides
+ * providing the context for the processing. Hence, the overlap should exceed the longest annotation
+ * spanning the split points.
+ */
+public class GateDocumentChunker {
+
+    /**
+     * The kinds of the boundaries at which the text can be split, in the order of preference.
+     */
+    private static final int NO_BOUNDARY = 0;
+    private static final int WORD_BOUNDARY = 1;
+    private static final int SENTENCE_BOUNDARY = 2;
+    private static final int PARAGRAPH_BOUNDARY = 3;
+
+    /**
+     * The chunk of the document text, with the offsets of the whole chunk and of its core part.
+     */
+    static class Chunk {
+        final int start;
+        final int end;
+        final int coreStart;
+        final int coreEnd;
+
+        Chunk(int start, int end, int coreStart, int coreEnd) {
+            this.start = start;
+            this.end = end;
+            this.coreStart = coreStart;
+            this.coreEnd = coreEnd;
+        }
+    }
+
+    private final int maxChars;
+
+    private final int overlapChars;
+
+    /**
+     * The target length of the core part of the chunks.
+     */
+    private final int coreChars;
+
+
+    public GateDocumentChunker(int maxChars, int overlapChars) {
+        this.maxChars = Math.max(2, maxChars);
+        // keep at least half of each chunk as the core part
+        this.overlapChars = Math.max(0, Math.min(overlapChars, this.maxChars / 4));
+        this.coreChars = this.maxChars - 2 * this.overlapChars;
+    }
+
+
+    /**
+     * Checks whether the text is long enough to be split into chunks.
+     */
+    public boolean isChunked(String text) {
+        return text.length() > maxChars;
+    }
+
+    /**
+     * Splits the text into the chunks, with the consecutive core parts covering the whole text.
+     */
+    List<Chunk> split(String text) {
+        int length = text.length();
+        List<Chunk> chunks = new ArrayList<>();
+
+        int coreStart = 0;
+        while (coreStart < length) {
+            int coreEnd = length;
+            if (length - coreStart > coreChars) {
+                coreEnd = findBoundary(text, coreStart + coreChars / 2, coreStart + coreChars, true);
+            }
+
+            int start = coreStart;
+            if (coreStart > 0) {
+                start = findBoundary(text, Math.max(0, coreStart - overlapChars), coreStart, false);
+            }
+            int end = coreEnd;
+            if (coreEnd < length) {
+                end = findBoundary(text, coreEnd, Math.min(length, coreEnd + overlapChars), true);
+            }
+
+            chunks.add(new Chunk(start, end, coreStart, coreEnd));
+            coreStart = coreEnd;
+        }
+        return chunks;
+    }
+
+    /**
+     * Merges the documents processed per each chunk into a single document. The annotation offsets are shifted
+     * back to the document text and only the annotations starting in the core part of each chunk are kept,
+     * so that the annotations in the overlaps are not duplicated. The annotation ids are shifted to remain
+     * unique across the chunks (the features referring to the annotation ids are not re-mapped).
+     */
+    GenericDocument merge(String text, List<Chunk> chunks, List<GenericDocument> chunkDocuments) {
+        List<GenericAnnotation> annotations = new ArrayList<>();
+        GenericAnnotation documentFeatures = new GenericAnnotation();
+
+        int idOffset = 0;
+        for (int i = 0; i < chunks.size(); ++i) {
+            Chunk chunk = chunks.get(i);
+            GenericDocument chunkDocument = chunkDocuments.get(i);
+
+            int maxId = -1;
+            for (GenericAnnotation annotation : chunkDocument.getAnnotations()) {
+                Object startIdx = annotation.getAttributes().get("start_idx");
+                Object endIdx = annotation.getAttributes().get("end_idx");
+                Object id = annotation.getAttributes().get("id");
+                if (id instanceof Number) {
+                    maxId = Math.max(maxId, ((Number) id).intValue());
+                }
+                if (!(startIdx instanceof Number) || !(endIdx instanceof Number)) {
+                    continue;
+                }
+
+                long start = ((Number) startIdx).longValue() + chunk.start;
+                if (start < chunk.coreStart || start >= chunk.coreEnd) {
+                    continue;
+                }
+
+                annotation.setAttribute("start_idx", start);
+                annotation.setAttribute("end_idx", ((Number) endIdx).longValue() + chunk.start);
+                if (id instanceof Number) {
+                    annotation.setAttribute("id", ((Number) id).intValue() + idOffset);
+                }
+                annotations.add(annotation);
+            }
+            idOffset += maxId + 1;
+
+            if (chunkDocument.getDocumentFeatures() != null) {
+                chunkDocument.getDocumentFeatures().getAttributes()
+                        .forEach((name, value) -> documentFeatures.getAttributes().putIfAbsent(name, value));
+            }
+        }
+
+        GenericDocument outDocument = new GenericDocument();
+        outDocument.setText(text);
+        outDocument.setAnnotations(annotations);
+        if (documentFeatures.getAttributes().size() > 0) {
+            outDocument.setDocumentFeatures(documentFeatures);
+        }
+        return outDocument;
+    }
+
+
+    /**
+     * Finds the most preferred boundary within the range (inclusive), the last or the first one of such kind.
+     * Returns the range end or start respectively, when no boundary is found.
+     */
+    private static int findBoundary(String text, int from, int to, boolean last) {
+        int boundary = -1;
+        int boundaryKind = NO_BOUNDARY;
+
+        int step = last ? -1 : 1;
+        for (int pos = last ? to : from; pos >= from && pos <= to; pos += step) {
+            int kind = getBoundaryKind(text, pos);
+            if (kind > boundaryKind) {
+                boundary = pos;
+                boundaryKind = kind;
+                if (kind == PARAGRAPH_BOUNDARY)
+                    break;
+            }
+        }
+
+        if (boundary < 0)
+            return last ? to : from;
+        return boundary;
+    }
+
+    /**
+     * Returns the kind of the boundary at the position, which needs to be the start of a word.
+     */
+    private static int getBoundaryKind(String text, int pos) {
+        if (pos <= 0 || pos >= text.length())
+            return PARAGRAPH_BOUNDARY;
+        if (!Character.isWhitespace(text.charAt(pos - 1)) || Character.isWhitespace(text.charAt(pos)))
+            return NO_BOUNDARY;
+
+        // check the whitespace and the character preceding the word
+        int prev = pos - 1;
+        int newLines = 0;
+        while (prev >= 0 && Character.isWhitespace(text.charAt(prev))) {
+            if (text.charAt(prev) == '\n')
+                ++newLines;
+            --prev;
+        }
+
+        if (prev < 0 || newLines >= 2)
+            return PARAGRAPH_BOUNDARY;
+
+        char prevChar = text.charAt(prev);
+        if (prevChar == '.' || prevChar == '!' || prevChar == '?')
+            return SENTENCE_BOUNDARY;
+        return WORD_BOUNDARY;
+    }
+}
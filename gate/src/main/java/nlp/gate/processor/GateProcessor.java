@@ -1,9 +1,13 @@
 package nlp.gate.processor;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.LogManager;
 import gate.Corpus;
@@ -12,10 +16,20 @@ import gate.Factory;
 import gate.Gate;
 import gate.Document;
 import gate.util.persistence.PersistenceManager;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import nlp.common.model.annotation.GenericAnnotation;
 import nlp.common.model.document.GenericDocument;
+import nlp.gate.utils.AnnotationFilterPlan;
+import nlp.gate.utils.GateDocumentSerializer;
 import nlp.gate.utils.GateUtils;
 import nlp.service.processor.NlpProcessor;
+import nlp.service.processor.ProcessingRejectedException;
+import nlp.service.processor.ProcessingTimeoutException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,36 +44,139 @@ public class GateProcessor extends NlpProcessor {
      */
     private static final int DEFAULT_GATE_CONTROLLERS_NUM = 1;
 
+    /**
+     * The default maximum number of single documents processed together when batching is enabled.
+     */
+    private static final int DEFAULT_BATCH_MAX_DOCUMENTS = 16;
+
+    /**
+     * By default, wait for an available GATE controller for up to 100 ms before growing the pool
+     * and release the controllers that are idle for more than 5 minutes (if the pool can grow).
+     */
+    private static final long DEFAULT_GATE_CONTROLLERS_GROW_WAIT_MS = 100;
+    private static final long DEFAULT_GATE_CONTROLLERS_IDLE_TIMEOUT_MS = 5 * 60 * 1000;
+
+    /**
+     * The maximum number of the requested filter plans to be cached.
+     */
+    private static final int REQUESTED_ANNOTATIONS_PLANS_MAX_ENTRIES = 256;
+
+    /**
+     * The application (runtime) parameter used by the clients to filter the annotations by sets and types,
+     * in the same form as "gateAnnotationSets" configuration parameter, e.g. "*:Drug".
+     */
+    public static final String ANNOTATION_SETS_PARAM = "annotationSets";
+
+    /**
+     * The application (runtime) parameter used by the clients to request the processed GATE document
+     * in the binary form, either "plain" or "compressed", to be passed to the next processing step.
+     */
+    public static final String BINARY_DOCUMENT_PARAM = "binaryDocument";
+    public static final String BINARY_DOCUMENT_PLAIN = "plain";
+    public static final String BINARY_DOCUMENT_COMPRESSED = "compressed";
+
+    /**
+     * The application (runtime) parameter used by the clients to leave out the document text from the results
+     * when set to "false", as the clients usually hold the text already.
+     */
+    public static final String INCLUDE_TEXT_PARAM = "includeText";
+
     /**
      * GATE corpus controller pool for support for parallel processing of documents.
      */
-    private BlockingQueue<CorpusController> controllerPool;
+    private GateControllerPool controllerPool;
+
+    /**
+     * Executor used to run the bulk processing sub-batches in parallel, one per each GATE controller.
+     */
+    private GateTaskScheduler gateExecutor;
+
+    /**
+     * Admission control of the requests waiting for the GATE controllers.
+     */
+    private GateRequestAdmission admission;
+
+    /**
+     * Optional cache of the processed documents.
+     */
+    private GateResultCache resultCache;
+
+    /**
+     * Optional batcher collecting the concurrently processed single documents into batches.
+     */
+    private GateDocumentBatcher documentBatcher;
+
+    /**
+     * Splits the long documents into chunks processed in parallel (if enabled).
+     */
+    private GateDocumentChunker documentChunker;
+
+    /**
+     * Skips the processing resources which outputs are already present in the documents (if configured).
+     */
+    private GateResourceSkipping resourceSkipping;
 
     /**
      * The available annotation sets with types as defined by the application designer,
      * can be specified as "*:*" which would be providing all the annotations.
+     * The filters are compiled once into an extraction plan.
      */
-    private Map<String, Set<String>> availableAnnotationSets;
+    private AnnotationFilterPlan availableAnnotationsPlan;
+
+    /**
+     * The filter plans requested by the clients restricted to the available annotation sets,
+     * by the requested filter string.
+     */
+    private final Map<String, AnnotationFilterPlan> requestedAnnotationsPlans = new ConcurrentHashMap<>();
 
     private GateApplicationSetupParameters params;
 
     private GateUtils gateUtils = new GateUtils(false);
 
+    private GateDocumentSerializer documentSerializer;
+
+    /**
+     * Processing metrics.
+     */
+    private MeterRegistry meterRegistry;
+    private Timer documentCreateTimer;
+    private Timer executeTimer;
+    private Timer extractTimer;
+    private Timer controllerWaitTimer;
+    private Counter documentsCounter;
+    private Counter charactersCounter;
+    private Counter annotationsCounter;
+
     private Logger log = LoggerFactory.getLogger(GateProcessor.class);
 
 
     public GateProcessor(GateApplicationSetupParameters params) throws Exception {
+        this(params, new SimpleMeterRegistry());
+    }
+
+    public GateProcessor(GateApplicationSetupParameters params, MeterRegistry meterRegistry) throws Exception {
+        this.meterRegistry = meterRegistry;
+
         initGateFramework(params);
         log.info("GATE framework initialized");
 
         initGateResources(params);
         log.info("GATE NLP application initialized");
 
+        initExecutors(params);
+        log.info("GATE processing executors initialized");
+
         parseAdditionalAppParams(params);
         log.info("GATE NLP application configuration set");
 
         this.params = params;
 
+        initResultCache(params);
+        initDocumentChunker(params);
+
+        initMetrics();
+        log.info("GATE processing metrics initialized");
+
         // decrease verbosity of some of the GATE plugins (if used)
         if (LogManager.getLogManager().getLogger("HeidelTimeWrapper") != null) {
             LogManager.getLogManager().getLogger("HeidelTimeWrapper").setLevel(Level.WARNING);
@@ -72,144 +189,541 @@ public class GateProcessor extends NlpProcessor {
      */
     public GenericDocument processDocument(GenericDocument inDocument,
                                            Map<String, String> runtimeParams) throws Exception {
+        return waitForResult(processDocumentAsync(inDocument, runtimeParams));
+    }
+
+    /**
+     * Processes provided single Generic Document without blocking the calling thread.
+     * The document is processed by the GATE executor, the errors are reported through the returned future.
+     */
+    public CompletableFuture<GenericDocument> processDocumentAsync(GenericDocument inDocument,
+                                                                   Map<String, String> runtimeParams) {
 
         // check whether the document is empty
         //
         if (gateUtils.isBlank(inDocument.getText())) {
             log.info("Provided document contains only whitespace characters");
             GenericDocument outDoc = new GenericDocument();
-            outDoc.setText(inDocument.getText());
-            return outDoc;
+            outDoc.setText(isTextIncluded(runtimeParams) ? inDocument.getText() : null);
+            return CompletableFuture.completedFuture(outDoc);
+        }
+
+        // check whether the document has been already processed
+        //
+        final String cacheKey = isCached(inDocument)
+                ? resultCache.getKey(inDocument.getText(), getOutputConfigKey(runtimeParams)) : null;
+        if (cacheKey != null) {
+            GenericDocument cachedDoc = resultCache.get(cacheKey);
+            if (cachedDoc != null) {
+                return CompletableFuture.completedFuture(cachedDoc);
+            }
+        }
+
+        // admit the request for processing, rejecting it if overloaded or past the client deadline
+        //
+        Long clientDeadline = getClientDeadline(runtimeParams);
+        String requestClass = getRequestClass(runtimeParams);
+        Map<String, String> documentParams = removeClientDeadline(runtimeParams);
+        long deadline;
+        try {
+            deadline = admission.admit(clientDeadline, requestClass);
+        }
+        catch (ProcessingRejectedException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        // process the long document split into chunks (unless it has input annotations or the binary document
+        // is used), or together with other concurrently submitted ones (if enabled)
+        //
+        CompletableFuture<GenericDocument> result;
+        if (documentChunker != null && documentChunker.isChunked(inDocument.getText())
+                && !hasInputAnnotations(inDocument) && !hasBinaryDocument(inDocument)
+                && getBinaryDocumentFormat(runtimeParams) == null) {
+            result = processDocumentChunks(inDocument, documentParams, deadline);
+        }
+        else if (documentBatcher != null) {
+            result = documentBatcher.submit(inDocument, documentParams, deadline);
+        }
+        else {
+            result = submitProcessing(waitStart -> processNonBlankDocument(inDocument, documentParams, deadline, waitStart),
+                    inDocument.getText().length(), documentParams, deadline);
+        }
+
+        return result.whenComplete((outDocument, e) -> {
+            admission.complete(requestClass);
+
+            if (outDocument != null && cacheKey != null) {
+                resultCache.put(cacheKey, outDocument);
+            }
+        });
+    }
+
+
+    /**
+     * Processes a long (non-blank) document split into overlapping chunks run in parallel by the GATE controllers,
+     * merging the processed chunks back into a single document.
+     */
+    private CompletableFuture<GenericDocument> processDocumentChunks(GenericDocument inDocument,
+                                                                     Map<String, String> runtimeParams,
+                                                                     long deadline) {
+        String text = inDocument.getText();
+        List<GateDocumentChunker.Chunk> chunks = documentChunker.split(text);
+
+        List<CompletableFuture<GenericDocument>> chunksResults = new ArrayList<>();
+        for (GateDocumentChunker.Chunk chunk : chunks) {
+            GenericDocument chunkDocument = new GenericDocument();
+            chunkDocument.setText(text.substring(chunk.start, chunk.end));
+
+            // GATE controller won't handle the blank chunks
+            if (gateUtils.isBlank(chunkDocument.getText())) {
+                chunksResults.add(CompletableFuture.completedFuture(new GenericDocument()));
+            }
+            else {
+                chunksResults.add(submitProcessing(
+                        waitStart -> processNonBlankDocument(chunkDocument, runtimeParams, deadline, waitStart),
+                        chunkDocument.getText().length(), runtimeParams, deadline));
+            }
         }
 
+        log.info("Processing the document split into " + chunks.size() + " chunks");
+
+        return CompletableFuture.allOf(chunksResults.toArray(new CompletableFuture[0])).thenApply(done -> {
+            List<GenericDocument> chunkDocuments = new ArrayList<>();
+            for (CompletableFuture<GenericDocument> chunkResult : chunksResults) {
+                chunkDocuments.add(chunkResult.join());
+            }
+            GenericDocument outDocument = documentChunker.merge(text, chunks, chunkDocuments);
+            if (!isTextIncluded(runtimeParams)) {
+                outDocument.setText(null);
+            }
+            return outDocument;
+        });
+    }
+
+
+    /**
+     * Processes a single (non-blank) document, waiting for the GATE controller since the wait start.
+     */
+    private GenericDocument processNonBlankDocument(GenericDocument inDocument,
+                                                    Map<String, String> runtimeParams,
+                                                    long deadline, long waitStart) throws Exception {
+
         // process the document and extract the annotations
         //
-        Document gateDoc;
-        CorpusController gateController = controllerPool.take();
+        // TODO:
+        // set-up the document meta-data,
+        // such as DCT using the runtime params
+        Document gateDoc = createGateDocument(inDocument);
 
+        CorpusController gateController;
         try {
-            log.info("Executing GATE controller: " + gateController.getName());
+            gateController = acquireController(deadline, waitStart);
+        }
+        catch (Exception e) {
+            Factory.deleteResource(gateDoc);
+            throw e;
+        }
 
-            // TODO:
-            // set-up the document meta-data,
-            // such as DCT using the runtime params
-            gateDoc = Factory.newDocument(inDocument.getText());
+        boolean interrupted = false;
+        try {
+            log.info("Executing GATE controller: " + gateController.getName());
 
-            processGateDocument(inDocument, runtimeParams, gateController, gateDoc);
+            processGateDocument(inDocument, runtimeParams, gateController, gateDoc, deadline);
         }
         catch (Exception e) {
             log.error("Error executing GATE controller on the provided NLP query: " + e.getMessage());
+            interrupted = isExecutionInterrupted(e);
+            if (!interrupted) {
+                Factory.deleteResource(gateDoc);
+            }
             throw e;
         }
         finally {
-            controllerPool.add(gateController);
+            if (!interrupted) {
+                releaseController(gateController);
+            }
         }
 
         // extract the annotations and prepare the output document
         //
-        GenericDocument outDocument = prepareOutputDocument(gateDoc, runtimeParams);
-
-
-        // cleanup
-        //
-        Factory.deleteResource(gateDoc);
-
-        return outDocument;
+        try {
+            return prepareOutputDocument(gateDoc, getDocumentText(inDocument, gateDoc), runtimeParams);
+        }
+        finally {
+            // cleanup
+            //
+            Factory.deleteResource(gateDoc);
+        }
     }
 
 
     /**
      * Processes provided documents in bulk and extract all the annotations (w. document-level features).
+     * The documents are split into sub-batches that are processed in parallel by the GATE controllers.
      */
     public List<GenericDocument> processDocumentsBulk(List<GenericDocument> inDocuments,
                                                       Map<String, String> runtimeParams) throws Exception {
+        return waitForResult(processDocumentsBulkAsync(inDocuments, runtimeParams));
+    }
+
+    /**
+     * Processes provided documents in bulk without blocking the calling thread.
+     * The sub-batches are processed by the GATE executor, the errors are reported through the returned future.
+     */
+    public CompletableFuture<List<GenericDocument>> processDocumentsBulkAsync(List<GenericDocument> inDocuments,
+                                                                              Map<String, String> runtimeParams) {
 
-        // we will be using only 1 GATE controller so we can assign the processed
-        // annotations at specified indices
+        // the processed documents will be assigned at the indices of the input documents
         //
         List<GenericDocument> outDocuments = new ArrayList<>(Collections.nCopies(inDocuments.size(), null));
-        List<Document> gateDocuments = new ArrayList<>(Collections.nCopies(inDocuments.size(), null));
 
-        // prepare GATE documents for processing
+        // select the documents for processing
         //
+        List<Integer> docIndices = new ArrayList<>();
+        List<String> cacheKeys = new ArrayList<>(Collections.nCopies(inDocuments.size(), null));
+        for (int i = 0; i < inDocuments.size(); ++i) {
+
+            // check whether the text is blank -- do not add such documents as GATE controller won't handle these
+            //
+            if (gateUtils.isBlank(inDocuments.get(i).getText())) {
+                log.info("Provided document (idx: " + i + ") contains only whitespace characters");
+                outDocuments.set(i, new GenericDocument());
+                continue;
+            }
+
+            // check whether the document has been already processed
+            //
+            if (isCached(inDocuments.get(i))) {
+                cacheKeys.set(i, resultCache.getKey(inDocuments.get(i).getText(), getOutputConfigKey(runtimeParams)));
+                GenericDocument cachedDoc = resultCache.get(cacheKeys.get(i));
+                if (cachedDoc != null) {
+                    outDocuments.set(i, cachedDoc);
+                    continue;
+                }
+            }
+
+            docIndices.add(i);
+        }
+
+        if (docIndices.isEmpty()) {
+            return CompletableFuture.completedFuture(outDocuments);
+        }
+
+        // admit the request for processing, rejecting it if overloaded or past the client deadline
+        //
+        Long clientDeadline = getClientDeadline(runtimeParams);
+        String requestClass = getRequestClass(runtimeParams);
+        Map<String, String> batchParams = removeClientDeadline(runtimeParams);
+        long deadline;
         try {
-            for (int i = 0; i < inDocuments.size(); ++i) {
+            deadline = admission.admit(clientDeadline, requestClass);
+        }
+        catch (ProcessingRejectedException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return processDocumentsBatches(inDocuments, docIndices, batchParams, deadline, outDocuments, cacheKeys)
+                .whenComplete((result, e) -> admission.complete(requestClass));
+    }
+
 
-                GenericDocument doc = inDocuments.get(i);
+    /**
+     * Processes the selected documents in sub-batches run in parallel by the GATE controllers,
+     * setting the processed documents at the indices of the input documents.
+     */
+    private CompletableFuture<List<GenericDocument>> processDocumentsBatches(List<GenericDocument> inDocuments,
+                                                                             List<Integer> docIndices,
+                                                                             Map<String, String> runtimeParams,
+                                                                             long deadline,
+                                                                             List<GenericDocument> outDocuments,
+                                                                             List<String> cacheKeys) {
+
+        // pack the documents into sub-batches balanced by the number of characters, one per each GATE controller
+        // or more when exceeding the characters budget, and run them in parallel
+        //
+        List<List<Integer>> batchesIndices = packDocumentsBatches(inDocuments, docIndices);
+        List<CompletableFuture<List<GenericDocument>>> batchesResults = new ArrayList<>();
+
+        for (List<Integer> batchIndices : batchesIndices) {
+            List<GenericDocument> batchDocuments = new ArrayList<>();
+            long batchChars = 0;
+            for (int idx : batchIndices) {
+                batchDocuments.add(inDocuments.get(idx));
+                batchChars += inDocuments.get(idx).getText().length();
+            }
 
-                // check whether the text is blank -- do not add such documents as GATE controller won't handle these
-                //
-                if (gateUtils.isBlank(doc.getText())) {
-                    log.info("Provided document (idx: " + i + ") contains only whitespace characters");
-                    gateDocuments.set(i, null);
+            batchesResults.add(submitProcessing(
+                    waitStart -> processDocumentsBatchIsolated(batchDocuments, runtimeParams, deadline, waitStart),
+                    batchChars, runtimeParams, deadline));
+        }
+
+        // collect the results preserving the order of the input documents, once all the sub-batches complete
+        //
+        return CompletableFuture.allOf(batchesResults.toArray(new CompletableFuture[0])).thenApply(done -> {
+            for (int b = 0; b < batchesResults.size(); ++b) {
+                List<GenericDocument> batchOutDocuments = batchesResults.get(b).join();
+
+                List<Integer> batchIndices = batchesIndices.get(b);
+                for (int j = 0; j < batchIndices.size(); ++j) {
+                    outDocuments.set(batchIndices.get(j), batchOutDocuments.get(j));
+
+                    if (cacheKeys.get(batchIndices.get(j)) != null) {
+                        resultCache.put(cacheKeys.get(batchIndices.get(j)), batchOutDocuments.get(j));
+                    }
                 }
-                else {
+            }
+            return outDocuments;
+        });
+    }
+
+
+    /**
+     * Packs the selected documents into the sub-batches: the longest documents first, each one into the sub-batch
+     * with the least characters so far, so that the sub-batches complete at about the same time.
+     * The documents within each sub-batch keep the order of the input documents.
+     */
+    private List<List<Integer>> packDocumentsBatches(List<GenericDocument> inDocuments, List<Integer> docIndices) {
+        long totalChars = 0;
+        for (int idx : docIndices) {
+            totalChars += inDocuments.get(idx).getText().length();
+        }
+
+        int numBatches = Math.min(controllerPool.getMaxSize(), docIndices.size());
+        if (params.getBatchMaxChars() > 0) {
+            long budgetBatches = (totalChars + params.getBatchMaxChars() - 1) / params.getBatchMaxChars();
+            numBatches = (int) Math.min(Math.max(numBatches, budgetBatches), docIndices.size());
+        }
+
+        List<Integer> sortedIndices = new ArrayList<>(docIndices);
+        sortedIndices.sort(Comparator.comparingInt((Integer idx) -> inDocuments.get(idx).getText().length()).reversed());
+
+        List<List<Integer>> batchesIndices = new ArrayList<>();
+        long[] batchesChars = new long[numBatches];
+        for (int b = 0; b < numBatches; ++b) {
+            batchesIndices.add(new ArrayList<>());
+        }
+        for (int idx : sortedIndices) {
+            int lightest = 0;
+            for (int b = 1; b < numBatches; ++b) {
+                if (batchesChars[b] < batchesChars[lightest])
+                    lightest = b;
+            }
+            batchesIndices.get(lightest).add(idx);
+            batchesChars[lightest] += inDocuments.get(idx).getText().length();
+        }
+
+        batchesIndices.forEach(Collections::sort);
+        return batchesIndices;
+    }
+
+
+    /**
+     * Processes a batch of (non-blank) documents using a single GATE controller, re-running the documents
+     * one by one when the batch execution fails or times out, so that a single failing or slow document
+     * does not fail the other documents and each document is run within its own timeout.
+     */
+    private List<GenericDocument> processDocumentsBatchIsolated(List<GenericDocument> inDocuments,
+                                                                Map<String, String> runtimeParams,
+                                                                long deadline, long waitStart) throws Exception {
+        try {
+            return processDocumentsBatch(inDocuments, runtimeParams, deadline, waitStart);
+        }
+        catch (ProcessingRejectedException | InterruptedException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            if (inDocuments.size() == 1) {
+                throw e;
+            }
+
+            log.info("Re-running the " + inDocuments.size() + " documents of the failed batch one by one");
+            List<GenericDocument> outDocuments = new ArrayList<>();
+            for (GenericDocument doc : inDocuments) {
+                outDocuments.add(processNonBlankDocument(doc, runtimeParams, deadline, System.nanoTime()));
+            }
+            return outDocuments;
+        }
+    }
+
+
+    /**
+     * Processes a batch of (non-blank) documents using a single GATE controller,
+     * waiting for the controller since the wait start.
+     */
+    private List<GenericDocument> processDocumentsBatch(List<GenericDocument> inDocuments,
+                                                        Map<String, String> runtimeParams,
+                                                        long deadline, long waitStart) throws Exception {
+
+        List<Document> gateDocuments = new ArrayList<>();
+        try {
+            // prepare GATE documents for processing
+            //
+            try {
+                for (GenericDocument doc : inDocuments) {
                     // TODO:
                     // set-up the document meta-data,
                     // such as DCT using the runtime params
-                    gateDocuments.set(i, Factory.newDocument(doc.getText()));
+                    gateDocuments.add(createGateDocument(doc));
                 }
             }
-        }
-        catch (Exception e) {
-            log.error("Error creating GATE documents for processing: " + e.getMessage());
-            throw e;
+            catch (Exception e) {
+                log.error("Error creating GATE documents for processing: " + e.getMessage());
+                throw e;
+            }
+
+            // run the GATE controller
+            //
+            CorpusController gateController = acquireController(deadline, waitStart);
+            boolean interrupted = false;
+            try {
+                log.info("Executing GATE controller: " + gateController.getName()
+                        + " on a batch of " + gateDocuments.size() + " documents");
+                runGateController(gateController, gateDocuments, deadline);
+            }
+            catch (Exception e) {
+                log.error("Error executing GATE controller on the provided bulk query: " + e.getMessage());
+                interrupted = isExecutionInterrupted(e);
+                if (interrupted) {
+                    gateDocuments.clear();
+                }
+                throw e;
+            }
+            finally {
+                if (!interrupted) {
+                    releaseController(gateController);
+                }
+            }
+
+            // get the annotations
+            //
+            List<GenericDocument> outDocuments = new ArrayList<>();
+            for (int i = 0; i < gateDocuments.size(); ++i) {
+                Document doc = gateDocuments.get(i);
+                outDocuments.add(prepareOutputDocument(doc, getDocumentText(inDocuments.get(i), doc), runtimeParams));
+            }
+
+            return outDocuments;
         }
         finally {
-            // cleanup the documents
+            // cleanup
+            //
             for (Document doc : gateDocuments) {
-                if (doc != null) {
-                    Factory.deleteResource(doc);
-                }
+                Factory.deleteResource(doc);
             }
         }
+    }
 
-        // run the GATE controller
-        //
-        CorpusController gateController = controllerPool.take();
-        Corpus corpus = gateController.getCorpus();
-        try
-        {
-            for (Document doc : gateDocuments) {
-                if (doc != null) {
-                    corpus.add(doc);
-                }
-            }
 
-            log.info("Executing GATE controller: " + gateController.getName());
-            gateController.execute();
+    /**
+     * Checks whether enough GATE controllers are available to start processing.
+     */
+    public boolean isReady() {
+        return controllerPool.isReady();
+    }
+
+
+    /**
+     * Returns the processing statistics.
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("controllers", controllerPool.getStatistics());
+        stats.put("inflight", admission.getInFlight());
+        stats.put("queued", gateExecutor.getQueued());
+        if (!params.getRequestClasses().isEmpty()) {
+            stats.put("classes", gateExecutor.getStatistics());
         }
-        catch (Exception e) {
-            log.error("Error executing GATE controller on the provided bulk query: " + e.getMessage());
-            throw e;
+        if (resultCache != null) {
+            stats.put("cache", resultCache.getStatistics());
         }
-        finally {
-            corpus.clear();
-            controllerPool.add(gateController);
+        return stats;
+    }
+
+
+    /**
+     * Returns the client deadline (epoch ms) provided in the runtime parameters, if any.
+     */
+    private Long getClientDeadline(Map<String, String> runtimeParams) {
+        if (runtimeParams == null || runtimeParams.get(DEADLINE_PARAM) == null)
+            return null;
+
+        try {
+            return Long.parseLong(runtimeParams.get(DEADLINE_PARAM).trim());
         }
+        catch (NumberFormatException e) {
+            log.error("Invalid request deadline provided: " + e.getMessage());
+            return null;
+        }
+    }
 
-        // get the annotations
-        //
-        for (int i = 0; i < gateDocuments.size(); ++i) {
-            Document doc = gateDocuments.get(i);
+    /**
+     * Removes the client deadline from the runtime parameters, so that the requests with different
+     * deadlines but the same output configuration can be batched together.
+     */
+    private static Map<String, String> removeClientDeadline(Map<String, String> runtimeParams) {
+        if (runtimeParams == null || !runtimeParams.containsKey(DEADLINE_PARAM))
+            return runtimeParams;
 
-            if (doc == null) {
-                outDocuments.set(i, new GenericDocument());
-            } else {
-                GenericDocument outDoc = prepareOutputDocument(doc, runtimeParams);
-                outDocuments.set(i, outDoc);
+        Map<String, String> params = new HashMap<>(runtimeParams);
+        params.remove(DEADLINE_PARAM);
+        return params;
+    }
+
+
+    /**
+     * Returns the request class provided in the runtime parameters, the default one if not provided or unknown.
+     */
+    private String getRequestClass(Map<String, String> runtimeParams) {
+        String requestClass = runtimeParams != null ? runtimeParams.get(REQUEST_CLASS_PARAM) : null;
+        return gateExecutor.getRequestClass(requestClass);
+    }
+
+
+    /**
+     * Runs the processing task by the GATE executor, scheduled by the number of characters to process
+     * within the request class, completing the returned future with its result or the original exception.
+     * The wait for the GATE controller starts on submitting, so that the task still queued once the max wait
+     * or the deadline passes is rejected by the executor, without taking a worker.
+     */
+    private <T> CompletableFuture<T> submitProcessing(ProcessingTask<T> task, long chars,
+                                                      Map<String, String> runtimeParams, long deadline) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        long waitStart = System.nanoTime();
+        gateExecutor.execute(() -> {
+            try {
+                result.complete(task.process(waitStart));
             }
-        }
+            catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        }, chars, getRequestClass(runtimeParams), admission.getWaitDeadline(deadline, waitStart), () -> {
+            controllerWaitTimer.record(System.nanoTime() - waitStart, TimeUnit.NANOSECONDS);
+            result.completeExceptionally(admission.rejectTimedOut());
+        });
+        return result;
+    }
 
-        // cleanup
-        //
-        for (Document doc : gateDocuments) {
-            if (doc != null) {
-                Factory.deleteResource(doc);
+    /**
+     * The processing run by the GATE executor, given the time it started waiting for the GATE controller.
+     */
+    @FunctionalInterface
+    interface ProcessingTask<T> {
+        T process(long waitStart) throws Exception;
+    }
+
+    /**
+     * Waits for the result of processing run by the executor, propagating the original exception.
+     */
+    private static <T> T waitForResult(Future<T> result) throws Exception {
+        try {
+            return result.get();
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
             }
+            throw e;
         }
-
-        return outDocuments;
     }
 
 
@@ -234,31 +748,65 @@ public class GateProcessor extends NlpProcessor {
      */
     private void initGateResources(GateApplicationSetupParameters params) throws Exception {
         try {
-            controllerPool = new LinkedBlockingQueue<>();
-
             // use by default only one controller
             int numControllers = DEFAULT_GATE_CONTROLLERS_NUM;
             if (params.gateControllersNum > 0) {
                 numControllers = params.gateControllersNum;
             }
 
-            // create the initial controller
-            CorpusController gateControllerTemplate = (CorpusController) PersistenceManager
+            // by default, the pool size is fixed
+            int maxControllers = Math.max(numControllers, params.getGateControllersMaxNum());
+
+            long growWaitMs = DEFAULT_GATE_CONTROLLERS_GROW_WAIT_MS;
+            if (params.getGateControllersGrowWaitMs() > 0) {
+                growWaitMs = params.getGateControllersGrowWaitMs();
+            }
+
+            long idleTimeoutMs = DEFAULT_GATE_CONTROLLERS_IDLE_TIMEOUT_MS;
+            if (params.getGateControllersIdleTimeoutMs() > 0) {
+                idleTimeoutMs = params.getGateControllersIdleTimeoutMs();
+            }
+
+            // create the template controller, the controllers replacing the stuck ones in the fixed-size pool
+            // are loaded the same way, as the template is used for processing there
+            GateControllerPool.ControllerLoader loader = () -> (CorpusController) PersistenceManager
                     .loadObjectFromFile(new File(params.getGateAppPath()));
-            gateControllerTemplate.setName("GateCorpusController-0");
+            CorpusController gateControllerTemplate = loader.load();
+            gateControllerTemplate.setName("GateCorpusController-template");
 
-            Corpus corpus = Factory.newCorpus("defaultCorpus-" + numControllers);
+            Corpus corpus = Factory.newCorpus("defaultCorpus-template");
             gateControllerTemplate.setCorpus(corpus);
 
-            controllerPool.add(gateControllerTemplate);
-
             // we need to set up independent gate controllers to provide a thread-safe access to gate resources
             // in case of parallel processing
-            for (int i = 1; i < numControllers; ++i) {
-                CorpusController controllerDuplicate = (CorpusController)Factory.duplicate(gateControllerTemplate);
-                controllerDuplicate.setName("GateCorpusController-" + Integer.toString(i));
-                controllerPool.add(controllerDuplicate);
+            // each new controller runs the sample documents before being used for processing (if enabled)
+            GateControllerPool.ControllerWarmup warmup = null;
+            if (params.getWarmupMaxIterations() > 0) {
+                warmup = new GateControllerWarmup(params.getWarmupDocumentsPath(), params.getWarmupMaxIterations(),
+                        meterRegistry)::warmUp;
+                log.info("GATE controllers warm-up enabled, using max iterations: " + params.getWarmupMaxIterations());
             }
+
+            // the configured processing resources are skipped by each new controller, including the warm-up
+            initResourceSkipping(params);
+            if (resourceSkipping != null) {
+                GateControllerPool.ControllerWarmup controllerWarmup = warmup;
+                warmup = controller -> {
+                    resourceSkipping.apply(controller);
+                    if (controllerWarmup != null) {
+                        controllerWarmup.warmUp(controller);
+                    }
+                };
+            }
+
+            // the controllers are duplicated in parallel, the remaining ones above the ready number
+            // are created in the background
+            controllerPool = new GateControllerPool(gateControllerTemplate, loader, numControllers,
+                    params.getGateControllersReadyNum(), maxControllers, growWaitMs, idleTimeoutMs, warmup,
+                    meterRegistry);
+
+            log.info("GATE controllers pool initialized with size: " + controllerPool.getSize()
+                    + " (max: " + controllerPool.getMaxSize() + ", ready: " + controllerPool.isReady() + ")");
         }
         catch (Exception e) {
             log.error("Error initializing GATE NLP application: " + e.getMessage());
@@ -267,15 +815,172 @@ public class GateProcessor extends NlpProcessor {
     }
 
 
+    /**
+     * Initializes the skipping of the processing resources which outputs are already present (if configured).
+     */
+    private void initResourceSkipping(GateApplicationSetupParameters params) {
+        if (params.getSkippableResources().isEmpty())
+            return;
+
+        Map<String, Map<String, Set<String>>> resourcesOutputs = new HashMap<>();
+        params.getSkippableResources().forEach((resourceName, outputs) ->
+                resourcesOutputs.put(resourceName, gateUtils.getAnnotationTypeSets(outputs)));
+
+        resourceSkipping = new GateResourceSkipping(resourcesOutputs, meterRegistry);
+        log.info("Skipping of the processing resources enabled, using outputs: " + params.getSkippableResources());
+    }
+
+
+    /**
+     * Initializes the executors used for parallel processing of the documents.
+     */
+    private void initExecutors(GateApplicationSetupParameters params) {
+        gateExecutor = new GateTaskScheduler(controllerPool.getMaxSize(), params.getSchedulingAgingCharsPerMs(),
+                params.getRequestClasses(), params.getDefaultRequestClass(), "GateProcessorWorker");
+        if (params.getSchedulingAgingCharsPerMs() > 0) {
+            log.info("Size-aware scheduling enabled, using aging rate: " + params.getSchedulingAgingCharsPerMs()
+                    + " characters per ms");
+        }
+
+        admission = new GateRequestAdmission(controllerPool.getMaxSize(), params.getAdmissionMaxQueued(),
+                params.getAdmissionMaxWaitMs(), params.getRequestTimeoutMs(), meterRegistry);
+        params.getRequestClasses().forEach((name, classParams) -> {
+            int maxControllers = classParams.getMaxControllers() > 0
+                    ? Math.min(classParams.getMaxControllers(), controllerPool.getMaxSize()) : controllerPool.getMaxSize();
+            admission.limitRequestClass(name, maxControllers, classParams.getMaxQueued());
+            log.info("Request class: " + name + " enabled, using reserved controllers: "
+                    + classParams.getReservedControllers() + ", max controllers: " + maxControllers
+                    + " and max queued requests: " + classParams.getMaxQueued());
+        });
+        if (params.getAdmissionMaxQueued() > 0 || params.getAdmissionMaxWaitMs() > 0) {
+            log.info("Admission control enabled, using max queued requests: " + params.getAdmissionMaxQueued()
+                    + " and max wait: " + params.getAdmissionMaxWaitMs() + " ms");
+        }
+        if (params.getDocumentTimeoutMs() > 0 || params.getRequestTimeoutMs() > 0) {
+            log.info("Processing timeouts enabled, using document timeout: " + params.getDocumentTimeoutMs()
+                    + " ms and request timeout: " + params.getRequestTimeoutMs() + " ms");
+        }
+
+        if (params.getBatchWindowMs() > 0) {
+            int batchMaxDocuments = DEFAULT_BATCH_MAX_DOCUMENTS;
+            if (params.getBatchMaxDocuments() > 0) {
+                batchMaxDocuments = params.getBatchMaxDocuments();
+            }
+
+            documentBatcher = new GateDocumentBatcher(params.getBatchWindowMs(), batchMaxDocuments,
+                    gateExecutor, admission, this::processDocumentsBatch);
+            log.info("Batching of single documents enabled, using window: " + params.getBatchWindowMs()
+                    + " ms and max documents: " + batchMaxDocuments);
+        }
+    }
+
+
+    /**
+     * Initializes the splitting of the long documents into chunks (if enabled).
+     */
+    private void initDocumentChunker(GateApplicationSetupParameters params) {
+        if (params.getChunkMaxChars() <= 0)
+            return;
+
+        documentChunker = new GateDocumentChunker(params.getChunkMaxChars(), params.getChunkOverlapChars());
+        log.info("Splitting of long documents into chunks enabled, using max chunk length: "
+                + params.getChunkMaxChars() + " and overlap: " + params.getChunkOverlapChars() + " characters");
+    }
+
+
+    /**
+     * Initializes the cache of the processed documents (if enabled).
+     */
+    private void initResultCache(GateApplicationSetupParameters params) {
+        if (params.getCacheMaxEntries() <= 0)
+            return;
+
+        // cached documents are specific to the GATE application used
+        String versionKey = params.getGateAppPath() + ":" + params.getAppVersion();
+        resultCache = new GateResultCache(params.getCacheMaxEntries(), versionKey,
+                params.getCacheDiskPath(), params.getCacheDiskMaxEntries());
+        log.info("Results cache enabled, using max entries: " + params.getCacheMaxEntries());
+    }
+
+
+    /**
+     * Initializes the processing metrics.
+     */
+    private void initMetrics() {
+        documentCreateTimer = Timer.builder("gate.document.create")
+                .description("Time spent creating GATE documents")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        executeTimer = Timer.builder("gate.controller.execute")
+                .description("Time spent executing GATE controllers")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        extractTimer = Timer.builder("gate.annotations.extract")
+                .description("Time spent extracting the annotations from GATE documents")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        controllerWaitTimer = Timer.builder("gate.controller.wait")
+                .description("Time spent waiting for an available GATE controller, including the time queued")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+
+        documentsCounter = Counter.builder("gate.documents.processed")
+                .description("Number of processed documents")
+                .register(meterRegistry);
+        charactersCounter = Counter.builder("gate.documents.characters")
+                .description("Number of characters in the processed documents")
+                .register(meterRegistry);
+        annotationsCounter = Counter.builder("gate.annotations.produced")
+                .description("Number of annotations produced")
+                .register(meterRegistry);
+
+        if (resultCache != null) {
+            FunctionCounter.builder("gate.cache.hits", resultCache, GateResultCache::getHits)
+                    .description("Number of results cache hits")
+                    .register(meterRegistry);
+            FunctionCounter.builder("gate.cache.misses", resultCache, GateResultCache::getMisses)
+                    .description("Number of results cache misses")
+                    .register(meterRegistry);
+            FunctionCounter.builder("gate.cache.evictions", resultCache, GateResultCache::getEvictions)
+                    .description("Number of results cache evictions")
+                    .register(meterRegistry);
+            Gauge.builder("gate.cache.size", resultCache, GateResultCache::getSize)
+                    .description("Number of entries in the results cache")
+                    .register(meterRegistry);
+        }
+    }
+
+
+    /**
+     * Checks whether the processed document can be cached, i.e. it is identified by its text only
+     * and not by the input annotations or the binary document.
+     */
+    private boolean isCached(GenericDocument inDocument) {
+        return resultCache != null && !hasInputAnnotations(inDocument) && !hasBinaryDocument(inDocument);
+    }
+
+    /**
+     * Returns the key identifying the output configuration used when preparing the output documents.
+     */
+    private String getOutputConfigKey(Map<String, String> runtimeParams) {
+        return params.getAnnotationSets() + "|" + getRequestedAnnotationSets(runtimeParams)
+                + "|" + params.isIncludeAnotationText() + "|" + getBinaryDocumentFormat(runtimeParams)
+                + "|" + isTextIncluded(runtimeParams);
+    }
+
+
     /**
      * Parses additional parameters provided as key-values in the configuration.
      */
     private void parseAdditionalAppParams(GateApplicationSetupParameters params) {
+        documentSerializer = params.getBinaryDocumentFilter() != null
+                ? new GateDocumentSerializer(params.getBinaryDocumentFilter()) : new GateDocumentSerializer();
+
         if (params.getAnnotationSets() == null)
             return;
 
         if (params.getAnnotationSets().length() > 0) {
-            availableAnnotationSets = gateUtils.getAnnotationTypeSets(params.getAnnotationSets());
+            availableAnnotationsPlan = gateUtils.getAnnotationFilterPlan(params.getAnnotationSets());
         }
     }
 
@@ -286,59 +991,175 @@ public class GateProcessor extends NlpProcessor {
     private void processGateDocument(GenericDocument inDocument,
                                      Map<String, String> runtimeParams,
                                      CorpusController gateController,
-                                     Document outDocument) throws Exception {
+                                     Document outDocument,
+                                     long deadline) throws Exception {
 
-        // TODO: use annotations from the input documents
         // TODO: use the runtime parameters during the processing
-        runGateController(gateController, List.of(outDocument));
+        runGateController(gateController, List.of(outDocument), deadline);
     }
 
 
     /**
-     * Run a GateController over a list of GATE documents.
+     * Run a GateController over a list of GATE documents, interrupting it when not completed
+     * within the documents timeout or until the request deadline.
      */
     private void runGateController(CorpusController gateController,
-                                   List<Document> documents) throws Exception {
+                                   List<Document> documents,
+                                   long deadline) throws Exception {
 
-        Corpus corpus = gateController.getCorpus();
+        long timeout = GateControllerPool.NO_TIMEOUT;
+        if (params.getDocumentTimeoutMs() > 0) {
+            timeout = TimeUnit.MILLISECONDS.toNanos(params.getDocumentTimeoutMs() * documents.size());
+        }
+        timeout = Math.min(timeout, admission.getRemainingNanos(deadline));
+
+        Timer.Sample sample = Timer.start(meterRegistry);
         try {
-            corpus.addAll(documents);
-            gateController.execute();
+            controllerPool.execute(gateController, documents, timeout);
         }
         finally {
-            corpus.clear();
+            admission.recordExecution(sample.stop(executeTimer));
         }
     }
 
 
+    /**
+     * Checks whether the GATE controller execution was interrupted, in which case both the controller
+     * and the documents are handed over to the controller pool, which returns the controller back
+     * and releases the documents once the controller stops, as it may still be processing these.
+     */
+    private static boolean isExecutionInterrupted(Exception e) {
+        return e instanceof ProcessingTimeoutException || e instanceof InterruptedException;
+    }
+
+
+    /**
+     * Creates a new GATE document from the provided document text, or restores it from the binary document
+     * processed by the previous step, with the input annotations materialised into the GATE annotation sets,
+     * so that these can be used by the processing resources.
+     */
+    private Document createGateDocument(GenericDocument inDocument) throws Exception {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            Document gateDoc = hasBinaryDocument(inDocument)
+                    ? documentSerializer.deserialize(inDocument.getBinaryDocument())
+                    : Factory.newDocument(inDocument.getText());
+            if (hasInputAnnotations(inDocument)) {
+                gateUtils.addAnnotations(gateDoc, inDocument.getAnnotations());
+            }
+            return gateDoc;
+        }
+        finally {
+            sample.stop(documentCreateTimer);
+        }
+    }
+
+    private static boolean hasInputAnnotations(GenericDocument inDocument) {
+        return inDocument.getAnnotations() != null && !inDocument.getAnnotations().isEmpty();
+    }
+
+    /**
+     * Checks whether the document is to be restored from the binary document, which is ignored
+     * unless the binary input is enabled.
+     */
+    private boolean hasBinaryDocument(GenericDocument inDocument) {
+        return params.isBinaryDocumentInput()
+                && inDocument.getBinaryDocument() != null && inDocument.getBinaryDocument().length > 0;
+    }
+
+
+    /**
+     * Takes a GATE controller from the pool, waiting until one is available or the max wait since the wait start
+     * or the deadline passes. The wait time is recorded since the wait start, including the time queued.
+     */
+    private CorpusController acquireController(long deadline, long waitStart) throws InterruptedException {
+        try {
+            long timeout = admission.getAcquireTimeoutNanos(deadline, waitStart);
+            if (timeout == GateRequestAdmission.NO_DEADLINE) {
+                return controllerPool.acquire();
+            }
+
+            CorpusController gateController = controllerPool.acquire(timeout, TimeUnit.NANOSECONDS);
+            if (gateController == null) {
+                throw admission.rejectTimedOut();
+            }
+            return gateController;
+        }
+        finally {
+            controllerWaitTimer.record(System.nanoTime() - waitStart, TimeUnit.NANOSECONDS);
+        }
+    }
+
+
+    /**
+     * Returns the GATE controller back to the pool.
+     */
+    private void releaseController(CorpusController gateController) {
+        controllerPool.release(gateController);
+    }
+
+
     /**
      * Extracts annotations from processed GATE document.
      */
-    private List<GenericAnnotation> extractAnnotations(Document gateDoc, Map<String, String> applicationParams) {
+    private List<GenericAnnotation> extractAnnotations(Document gateDoc,
+                                                       String text,
+                                                       Map<String, String> applicationParams) {
 
         // perform filtering of annotations when provided by either:
         // - configuration file (init)
         // - client app (query)
-        Map<String, Set<String>> annSets = null;
-        if (availableAnnotationSets != null && availableAnnotationSets.size() > 0)
-            annSets = new HashMap<>(availableAnnotationSets);
+        AnnotationFilterPlan annotationsPlan = getAnnotationsPlan(applicationParams);
+        if (annotationsPlan == null)
+            annotationsPlan = AnnotationFilterPlan.MATCH_ALL;
 
-        // select appropriate annotations set
-        List<GenericAnnotation> anns;
-        if (annSets != null)
-            anns = gateUtils.getAtomicAnnotations(gateDoc, annSets);
-        else
-            anns = gateUtils.getAtomicAnnotations(gateDoc);
+        Timer.Sample sample = Timer.start(meterRegistry);
 
-        // refine the annotations
-        if (params.isIncludeAnotationText()) {
-            gateUtils.refineAtomicAnnotations(anns, gateDoc);
-        }
+        // only the references to the selected GATE annotations are collected here,
+        // these are converted when writing the response (including the annotation text, if needed)
+        List<GenericAnnotation> anns = gateUtils.getAnnotationList(gateDoc, annotationsPlan,
+                params.isIncludeAnotationText() ? text : null);
 
+        sample.stop(extractTimer);
         return anns;
     }
 
 
+    /**
+     * Returns the annotations filter plan to be used, restricting the filters requested by the client
+     * to the annotation sets available in the application, or null if no filtering is needed.
+     */
+    private AnnotationFilterPlan getAnnotationsPlan(Map<String, String> applicationParams) {
+        String requestedAnnotationSets = getRequestedAnnotationSets(applicationParams);
+        if (requestedAnnotationSets == null)
+            return availableAnnotationsPlan;
+
+        AnnotationFilterPlan annotationsPlan = requestedAnnotationsPlans.get(requestedAnnotationSets);
+        if (annotationsPlan != null)
+            return annotationsPlan;
+
+        annotationsPlan = gateUtils.getAnnotationFilterPlan(requestedAnnotationSets);
+        if (availableAnnotationsPlan != null)
+            annotationsPlan = availableAnnotationsPlan.intersect(annotationsPlan);
+
+        // keep the cache bounded in case of many different filters provided by the clients
+        if (requestedAnnotationsPlans.size() >= REQUESTED_ANNOTATIONS_PLANS_MAX_ENTRIES)
+            requestedAnnotationsPlans.clear();
+        requestedAnnotationsPlans.put(requestedAnnotationSets, annotationsPlan);
+        return annotationsPlan;
+    }
+
+    private static String getRequestedAnnotationSets(Map<String, String> applicationParams) {
+        if (applicationParams == null)
+            return null;
+
+        String requestedAnnotationSets = applicationParams.get(ANNOTATION_SETS_PARAM);
+        if (requestedAnnotationSets == null || requestedAnnotationSets.trim().isEmpty())
+            return null;
+        return requestedAnnotationSets;
+    }
+
+
     /**
      * Extracts document-level features from processed GATE document.
      */
@@ -353,24 +1174,70 @@ public class GateProcessor extends NlpProcessor {
 
 
     /**
-     * Prepares the output Generic Document.
+     * Returns the text of the processed document: the input text, unless the GATE document was restored
+     * from the binary document, in which case the text is taken from GATE.
+     */
+    private String getDocumentText(GenericDocument inDocument, Document gateDoc) {
+        if (hasBinaryDocument(inDocument))
+            return gateUtils.getDocumentText(gateDoc);
+        return inDocument.getText();
+    }
+
+    /**
+     * Checks whether the document text is to be included in the output document (by default).
      */
-    private GenericDocument prepareOutputDocument(Document gateDoc, Map<String, String> runtimeParams) {
+    private static boolean isTextIncluded(Map<String, String> applicationParams) {
+        return applicationParams == null || !"false".equalsIgnoreCase(applicationParams.get(INCLUDE_TEXT_PARAM));
+    }
+
+    /**
+     * Returns the requested binary document format, or null if the binary document is not requested.
+     */
+    private static String getBinaryDocumentFormat(Map<String, String> applicationParams) {
+        if (applicationParams == null)
+            return null;
+
+        String format = applicationParams.get(BINARY_DOCUMENT_PARAM);
+        if (BINARY_DOCUMENT_PLAIN.equalsIgnoreCase(format))
+            return BINARY_DOCUMENT_PLAIN;
+        if (BINARY_DOCUMENT_COMPRESSED.equalsIgnoreCase(format))
+            return BINARY_DOCUMENT_COMPRESSED;
+        return null;
+    }
+
+
+    /**
+     * Prepares the output Generic Document, using the text of the processed document, as held by the caller,
+     * so that it does not need to be copied from GATE.
+     */
+    private GenericDocument prepareOutputDocument(Document gateDoc,
+                                                  String text,
+                                                  Map<String, String> runtimeParams) throws IOException {
         GenericDocument outDoc = new GenericDocument();
 
         // TODO:
         // parse the applicationParams to decide whether
-        // to include text and/or additional properties
+        // to include additional properties
 
-        List<GenericAnnotation> anns = extractAnnotations(gateDoc, runtimeParams);
+        List<GenericAnnotation> anns = extractAnnotations(gateDoc, text, runtimeParams);
         GenericAnnotation feats = extractFeatures(gateDoc, runtimeParams);
 
-        outDoc.setText(gateUtils.getDocumentText(gateDoc));
+        outDoc.setText(isTextIncluded(runtimeParams) ? text : null);
         outDoc.setAnnotations(anns);
+
+        documentsCounter.increment();
+        charactersCounter.increment(text.length());
+        annotationsCounter.increment(anns.size());
         if (feats != null && feats.getAttributes().size() > 0) {
             outDoc.setDocumentFeatures(feats);
         }
 
+        String binaryFormat = getBinaryDocumentFormat(runtimeParams);
+        if (binaryFormat != null) {
+            outDoc.setBinaryDocument(documentSerializer.serialize(gateDoc,
+                    binaryFormat.equals(BINARY_DOCUMENT_COMPRESSED)));
+        }
+
         return outDoc;
     }
 }
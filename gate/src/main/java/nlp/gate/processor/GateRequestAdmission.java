@@ -0,0 +1,238 @@
+package nlp.gate.processor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import nlp.service.processor.ProcessingRejectedException;
+import nlp.service.processor.ProcessingRejectedException.Reason;
+
+
+/**
+ * Admission control of the processing requests in front of the GATE controllers pool.
+ * Limits the number of requests admitted for processing (being processed or waiting for a controller)
+ * and the time the requests can wait for a controller, failing fast with a suggested retry time
+ * computed from the observed throughput of the controllers.
+ * The admitted requests are processed until the deadline, set either by the client or by the request timeout.
+ * The number of admitted requests can be also limited per each request class.
+ */
+public class GateRequestAdmission {
+
+    /**
+     * No deadline for processing the request.
+     */
+    public static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    /**
+     * The weight of the most recent execution time in the moving average.
+     */
+    private static final double EXECUTION_TIME_ALPHA = 0.2;
+
+    private final int maxControllers;
+
+    /**
+     * The max number of admitted requests, 0 if not limited.
+     */
+    private final int maxInFlight;
+
+    /**
+     * The max time the requests can wait for a controller, 0 if not limited.
+     */
+    private final long maxWaitMs;
+
+    /**
+     * The max time of processing the request, 0 if not limited.
+     */
+    private final long requestTimeoutMs;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * The number of admitted requests and their max number, per each limited request class.
+     */
+    private final Map<String, AtomicInteger> classInFlight = new ConcurrentHashMap<>();
+    private final Map<String, Integer> classMaxInFlight = new ConcurrentHashMap<>();
+
+    /**
+     * The exponentially weighted moving average of the GATE controller execution time.
+     */
+    private volatile double avgExecutionNanos = 0;
+
+    private Counter queueFullCounter;
+    private Counter waitTimeoutCounter;
+    private Counter deadlineExceededCounter;
+
+
+    public GateRequestAdmission(int maxControllers, int maxQueued, long maxWaitMs, long requestTimeoutMs,
+                                MeterRegistry meterRegistry) {
+        this.maxControllers = Math.max(1, maxControllers);
+        this.maxInFlight = maxQueued > 0 ? this.maxControllers + maxQueued : 0;
+        this.maxWaitMs = Math.max(0, maxWaitMs);
+        this.requestTimeoutMs = Math.max(0, requestTimeoutMs);
+
+        initMetrics(meterRegistry);
+    }
+
+
+    /**
+     * Limits the number of admitted requests of the class to the controllers it can use and the waiting ones.
+     */
+    public void limitRequestClass(String requestClass, int maxControllers, int maxQueued) {
+        if (maxQueued <= 0)
+            return;
+
+        classInFlight.put(requestClass, new AtomicInteger());
+        classMaxInFlight.put(requestClass, Math.max(1, maxControllers) + maxQueued);
+    }
+
+
+    /**
+     * Admits the request of the class for processing, which needs to be followed by complete() when done.
+     * Returns the deadline (in System.nanoTime() units) until which the request can be processed,
+     * or NO_DEADLINE.
+     */
+    public long admit(Long clientDeadlineMs, String requestClass) {
+        AtomicInteger classAdmitted = classInFlight.get(requestClass);
+        if (classAdmitted != null && classAdmitted.incrementAndGet() > classMaxInFlight.get(requestClass)) {
+            classAdmitted.decrementAndGet();
+            queueFullCounter.increment();
+            throw new ProcessingRejectedException(Reason.QUEUE_FULL, getRetryAfterSeconds(),
+                    "Too many requests of class: " + requestClass + " waiting for processing");
+        }
+
+        int admitted = inFlight.incrementAndGet();
+        if (maxInFlight > 0 && admitted > maxInFlight) {
+            complete(requestClass);
+            queueFullCounter.increment();
+            throw new ProcessingRejectedException(Reason.QUEUE_FULL, getRetryAfterSeconds(),
+                    "Too many requests waiting for processing");
+        }
+
+        long now = System.nanoTime();
+        long deadline = NO_DEADLINE;
+        if (requestTimeoutMs > 0) {
+            deadline = now + TimeUnit.MILLISECONDS.toNanos(requestTimeoutMs);
+        }
+        if (clientDeadlineMs != null) {
+            long clientDeadline = now + TimeUnit.MILLISECONDS.toNanos(clientDeadlineMs - System.currentTimeMillis());
+            if (clientDeadline - now <= 0) {
+                complete(requestClass);
+                deadlineExceededCounter.increment();
+                throw new ProcessingRejectedException(Reason.DEADLINE_EXCEEDED, getRetryAfterSeconds(),
+                        "The request deadline has already passed");
+            }
+            deadline = Math.min(deadline, clientDeadline);
+        }
+        return deadline;
+    }
+
+    /**
+     * Marks the admitted request of the class as completed.
+     */
+    public void complete(String requestClass) {
+        inFlight.decrementAndGet();
+
+        AtomicInteger classAdmitted = classInFlight.get(requestClass);
+        if (classAdmitted != null) {
+            classAdmitted.decrementAndGet();
+        }
+    }
+
+
+    /**
+     * Returns the time remaining until the deadline (in ns), throwing if it has already passed.
+     */
+    public long getRemainingNanos(long deadline) {
+        if (deadline == NO_DEADLINE) {
+            return NO_DEADLINE;
+        }
+
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+            throw rejectTimedOut();
+        }
+        return remaining;
+    }
+
+    /**
+     * Returns the time (in System.nanoTime() units) until which the processing submitted at the wait start
+     * can wait for a controller, limited by the max wait and the deadline, or NO_DEADLINE if not limited.
+     */
+    public long getWaitDeadline(long deadline, long waitStart) {
+        if (maxWaitMs <= 0)
+            return deadline;
+
+        long waitDeadline = waitStart + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        return deadline == NO_DEADLINE || waitDeadline - deadline < 0 ? waitDeadline : deadline;
+    }
+
+    /**
+     * Returns for how long (in ns) a controller can still be waited for by the processing submitted
+     * at the wait start, or NO_DEADLINE if not limited, throwing if the wait is already over.
+     */
+    public long getAcquireTimeoutNanos(long deadline, long waitStart) {
+        long waitDeadline = getWaitDeadline(deadline, waitStart);
+        if (waitDeadline == NO_DEADLINE)
+            return NO_DEADLINE;
+
+        long remaining = waitDeadline - System.nanoTime();
+        if (remaining <= 0) {
+            throw rejectTimedOut();
+        }
+        return remaining;
+    }
+
+    /**
+     * Returns the exception for the requests which could not acquire a controller on time.
+     */
+    public ProcessingRejectedException rejectTimedOut() {
+        waitTimeoutCounter.increment();
+        return new ProcessingRejectedException(Reason.WAIT_TIMEOUT, getRetryAfterSeconds(),
+                "No GATE controller available within the allowed time");
+    }
+
+
+    /**
+     * Records the time of a single GATE controller execution.
+     */
+    public synchronized void recordExecution(long executionNanos) {
+        if (avgExecutionNanos == 0) {
+            avgExecutionNanos = executionNanos;
+        } else {
+            avgExecutionNanos += EXECUTION_TIME_ALPHA * (executionNanos - avgExecutionNanos);
+        }
+    }
+
+    /**
+     * Estimates the time (in s) needed to process the admitted requests by all the controllers.
+     */
+    public long getRetryAfterSeconds() {
+        double drainNanos = Math.max(1, inFlight.get()) * avgExecutionNanos / maxControllers;
+        return Math.max(1, (long) Math.ceil(drainNanos / TimeUnit.SECONDS.toNanos(1)));
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+
+    private void initMetrics(MeterRegistry meterRegistry) {
+        queueFullCounter = createRejectedCounter(meterRegistry, Reason.QUEUE_FULL);
+        waitTimeoutCounter = createRejectedCounter(meterRegistry, Reason.WAIT_TIMEOUT);
+        deadlineExceededCounter = createRejectedCounter(meterRegistry, Reason.DEADLINE_EXCEEDED);
+
+        Gauge.builder("gate.requests.inflight", this, GateRequestAdmission::getInFlight)
+                .description("Number of requests admitted for processing")
+                .register(meterRegistry);
+    }
+
+    private static Counter createRejectedCounter(MeterRegistry meterRegistry, Reason reason) {
+        return Counter.builder("gate.requests.rejected")
+                .description("Number of requests rejected by the admission control")
+                .tag("reason", reason.name().toLowerCase())
+                .register(meterRegistry);
+    }
+}
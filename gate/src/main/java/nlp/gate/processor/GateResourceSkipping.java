@@ -0,0 +1,168 @@
+package nlp.gate.processor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import gate.AnnotationSet;
+import gate.CorpusController;
+import gate.Document;
+import gate.LanguageAnalyser;
+import gate.ProcessingResource;
+import gate.creole.ConditionalController;
+import gate.creole.RunningStrategy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import nlp.gate.utils.AnnotationFilterPlan;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Skips the processing resources of the GATE application when all their output annotation types
+ * are already present in the processed document, e.g. the tokens and sentences provided as the input annotations
+ * by the previous services in the multi-stage pipelines.
+ * The processing resources can be skipped only by the conditional controllers, by wrapping their running strategies.
+ */
+public class GateResourceSkipping {
+
+    /**
+     * The output annotation types by the set names, per each skippable processing resource name.
+     */
+    private final Map<String, Map<String, Set<String>>> resourcesOutputs;
+
+    private final Map<String, Counter> skippedCounters = new HashMap<>();
+
+    private Logger log = LoggerFactory.getLogger(GateResourceSkipping.class);
+
+
+    public GateResourceSkipping(Map<String, Map<String, Set<String>>> resourcesOutputs, MeterRegistry meterRegistry) {
+        this.resourcesOutputs = resourcesOutputs;
+
+        for (String resourceName : resourcesOutputs.keySet()) {
+            skippedCounters.put(resourceName, Counter.builder("gate.resources.skipped")
+                    .description("Number of runs of the processing resources skipped as their outputs were present")
+                    .tag("resource", resourceName)
+                    .register(meterRegistry));
+        }
+    }
+
+
+    /**
+     * Sets up the controller to skip the configured processing resources. Needs to be applied on each controller,
+     * as the running strategies refer to the processing resources of the controller.
+     */
+    public void apply(CorpusController controller) {
+        if (!(controller instanceof ConditionalController)) {
+            log.warn("GATE controller: " + controller.getName()
+                    + " is not a conditional controller, the processing resources cannot be skipped");
+            return;
+        }
+
+        // the strategies are aligned with the processing resources of the controller, which are used
+        // instead of the ones referred by the strategies, as these may not be duplicated with the controller
+        ConditionalController conditionalController = (ConditionalController) controller;
+        List<Object> resources = new ArrayList<>(controller.getPRs());
+        List<RunningStrategy> strategies = new ArrayList<>();
+        for (Object obj : conditionalController.getRunningStrategies()) {
+            RunningStrategy strategy = (RunningStrategy) obj;
+            if (strategy instanceof SkippingRunningStrategy) {
+                strategy = ((SkippingRunningStrategy) strategy).strategy;
+            }
+
+            ProcessingResource resource = (ProcessingResource) resources.get(strategies.size());
+            Map<String, Set<String>> outputs = resourcesOutputs.get(resource.getName());
+            if (outputs != null && resource instanceof LanguageAnalyser) {
+                strategy = new SkippingRunningStrategy(strategy, (LanguageAnalyser) resource, outputs,
+                        skippedCounters.get(resource.getName()));
+            }
+            else if (outputs != null) {
+                log.warn("GATE processing resource: " + resource.getName()
+                        + " does not process documents and cannot be skipped");
+            }
+            strategies.add(strategy);
+        }
+        conditionalController.setRunningStrategies(strategies);
+    }
+
+
+    /**
+     * Checks whether all the annotation types are present in the document, in the specified sets
+     * or in any set for "*" set name. The "*" type name matches any annotation in the set.
+     */
+    static boolean hasAnnotations(Document gateDoc, Map<String, Set<String>> setsTypes) {
+        for (Map.Entry<String, Set<String>> entry : setsTypes.entrySet()) {
+            for (String typeName : entry.getValue()) {
+                if (!hasAnnotations(gateDoc, entry.getKey(), typeName))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasAnnotations(Document gateDoc, String setName, String typeName) {
+        if (!setName.equals(AnnotationFilterPlan.FILTER_MATCH_ANY)) {
+            // need to check the set exists, as GATE would create an empty one otherwise
+            if (!setName.isEmpty() && !gateDoc.getAnnotationSetNames().contains(setName))
+                return false;
+            return hasAnnotations(gateDoc.getAnnotations(setName), typeName);
+        }
+
+        if (hasAnnotations(gateDoc.getAnnotations(), typeName))
+            return true;
+        for (String name : gateDoc.getAnnotationSetNames()) {
+            if (hasAnnotations(gateDoc.getAnnotations(name), typeName))
+                return true;
+        }
+        return false;
+    }
+
+    private static boolean hasAnnotations(AnnotationSet annSet, String typeName) {
+        if (typeName.equals(AnnotationFilterPlan.FILTER_MATCH_ANY))
+            return !annSet.isEmpty();
+        return !annSet.get(typeName).isEmpty();
+    }
+
+
+    /**
+     * Runs the processing resource as by the original strategy, unless its outputs are present in the document.
+     */
+    private static class SkippingRunningStrategy implements RunningStrategy {
+        final RunningStrategy strategy;
+        final LanguageAnalyser resource;
+        final Map<String, Set<String>> outputs;
+        final Counter skippedCounter;
+
+        SkippingRunningStrategy(RunningStrategy strategy, LanguageAnalyser resource,
+                                Map<String, Set<String>> outputs, Counter skippedCounter) {
+            this.strategy = strategy;
+            this.resource = resource;
+            this.outputs = outputs;
+            this.skippedCounter = skippedCounter;
+        }
+
+        @Override
+        public boolean shouldRun() {
+            if (!strategy.shouldRun())
+                return false;
+
+            Document gateDoc = resource.getDocument();
+            if (gateDoc != null && hasAnnotations(gateDoc, outputs)) {
+                skippedCounter.increment();
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public int getRunMode() {
+            return strategy.getRunMode();
+        }
+
+        @Override
+        public ProcessingResource getPR() {
+            return resource;
+        }
+    }
+}
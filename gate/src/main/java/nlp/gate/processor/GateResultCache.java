@@ -0,0 +1,321 @@
+package nlp.gate.processor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Data;
+import nlp.common.model.annotation.ColumnarAnnotations;
+import nlp.common.model.annotation.GenericAnnotation;
+import nlp.common.model.document.GenericDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Content-addressed cache of the processed documents, keyed by the hash of the document text,
+ * the output configuration (e.g. annotation filters) and the version of the GATE application.
+ * The cache is size-bounded with LRU eviction. The evicted entries can be optionally spilled
+ * to an on-disk store, also size-bounded with LRU eviction.
+ *
+ * The documents are kept in a compact form, with the annotations in the columnar encoding,
+ * so that no GATE resources are retained. Each cache hit returns a new copy of the document,
+ * with the offsets and ids restored as Long and Integer, as in the freshly processed documents.
+ * The feature values are shared between the copies and must not be mutated.
+ */
+public class GateResultCache {
+
+    private final int maxEntries;
+
+    private final String versionKey;
+
+    /**
+     * In-memory cache with the entries kept in the access order.
+     */
+    private final LinkedHashMap<String, CachedDocument> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Optional on-disk store.
+     */
+    private final File diskStoreDir;
+
+    private final int diskMaxEntries;
+
+    private final LinkedHashMap<String, File> diskEntries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final ObjectMapper mapper = new ObjectMapper()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    /**
+     * Cache statistics.
+     */
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private Logger log = LoggerFactory.getLogger(GateResultCache.class);
+
+
+    public GateResultCache(int maxEntries, String versionKey, String diskStorePath, int diskMaxEntries) {
+        this.maxEntries = maxEntries;
+        this.versionKey = versionKey;
+        this.diskMaxEntries = diskMaxEntries;
+
+        if (diskStorePath != null && diskStorePath.length() > 0 && diskMaxEntries > 0) {
+            diskStoreDir = new File(diskStorePath);
+            initDiskStore();
+        }
+        else {
+            diskStoreDir = null;
+        }
+    }
+
+
+    /**
+     * Computes the cache key for the document text and output configuration.
+     */
+    public String getKey(String text, String outputConfigKey) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        digest.update(versionKey.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(outputConfigKey.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(text.getBytes(StandardCharsets.UTF_8));
+
+        StringBuilder key = new StringBuilder();
+        for (byte b : digest.digest()) {
+            key.append(String.format("%02x", b));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Returns the cached document or null if not present.
+     */
+    public GenericDocument get(String key) {
+        CachedDocument doc;
+        synchronized (entries) {
+            doc = entries.get(key);
+        }
+        if (doc != null) {
+            hits.incrementAndGet();
+            return doc.toDocument();
+        }
+
+        doc = getFromDisk(key);
+        if (doc != null) {
+            diskHits.incrementAndGet();
+            putEntry(key, doc);
+            return doc.toDocument();
+        }
+
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Stores the document in the cache, possibly evicting the least recently used entries.
+     */
+    public void put(String key, GenericDocument doc) {
+        putEntry(key, CachedDocument.fromDocument(doc));
+    }
+
+    private void putEntry(String key, CachedDocument doc) {
+        List<Map.Entry<String, CachedDocument>> evicted = new ArrayList<>();
+        synchronized (entries) {
+            entries.put(key, doc);
+
+            Iterator<Map.Entry<String, CachedDocument>> it = entries.entrySet().iterator();
+            while (entries.size() > maxEntries && it.hasNext()) {
+                evicted.add(it.next());
+                it.remove();
+            }
+        }
+
+        evictions.addAndGet(evicted.size());
+        if (diskStoreDir != null) {
+            evicted.forEach(entry -> putToDisk(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    /**
+     * Cache statistics getters.
+     */
+    public long getHits() {
+        return hits.get() + diskHits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public int getSize() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Returns the cache statistics.
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (entries) {
+            stats.put("entries", entries.size());
+        }
+        if (diskStoreDir != null) {
+            synchronized (diskEntries) {
+                stats.put("disk_entries", diskEntries.size());
+            }
+        }
+        stats.put("hits", hits.get());
+        stats.put("disk_hits", diskHits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        return stats;
+    }
+
+
+    /**
+     * On-disk store helper functions
+     */
+    private void initDiskStore() {
+        if (!diskStoreDir.exists() && !diskStoreDir.mkdirs()) {
+            log.error("Cannot create the cache directory: " + diskStoreDir.getPath());
+        }
+
+        // pick up the entries stored previously, from the oldest
+        File[] files = diskStoreDir.listFiles((dir, name) -> name.endsWith(".json"));
+        if (files != null) {
+            Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+            for (File file : files) {
+                diskEntries.put(file.getName().substring(0, file.getName().length() - ".json".length()), file);
+            }
+        }
+        evictFromDisk();
+
+        log.info("Using on-disk results cache: " + diskStoreDir.getPath() + " with " + diskEntries.size() + " entries");
+    }
+
+    private CachedDocument getFromDisk(String key) {
+        if (diskStoreDir == null) {
+            return null;
+        }
+
+        File file;
+        synchronized (diskEntries) {
+            file = diskEntries.get(key);
+        }
+        if (file == null) {
+            return null;
+        }
+
+        try {
+            return mapper.readValue(file, CachedDocument.class);
+        }
+        catch (IOException e) {
+            log.warn("Cannot read the cached document: " + file.getPath() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void putToDisk(String key, CachedDocument doc) {
+        File file = new File(diskStoreDir, key + ".json");
+        try {
+            mapper.writeValue(file, doc);
+        }
+        catch (IOException e) {
+            log.warn("Cannot write the cached document: " + file.getPath() + ": " + e.getMessage());
+            return;
+        }
+
+        synchronized (diskEntries) {
+            diskEntries.put(key, file);
+        }
+        evictFromDisk();
+    }
+
+    private void evictFromDisk() {
+        List<File> evicted = new ArrayList<>();
+        synchronized (diskEntries) {
+            Iterator<File> it = diskEntries.values().iterator();
+            while (diskEntries.size() > diskMaxEntries && it.hasNext()) {
+                evicted.add(it.next());
+                it.remove();
+            }
+        }
+
+        for (File file : evicted) {
+            if (!file.delete()) {
+                log.warn("Cannot remove the cached document: " + file.getPath());
+            }
+        }
+    }
+
+
+    /**
+     * The compact form of the cached document, also used in the on-disk store.
+     */
+    @Data
+    private static class CachedDocument {
+        String text;
+
+        ColumnarAnnotations annotations;
+
+        Map<String, Object> documentFeatures;
+
+        byte[] binaryDocument;
+
+        Map<String, Object> linkedAttributes;
+
+
+        static CachedDocument fromDocument(GenericDocument doc) {
+            CachedDocument cached = new CachedDocument();
+            cached.text = doc.getText();
+            cached.annotations = doc.getAnnotations() != null ? ColumnarAnnotations.encode(doc.getAnnotations()) : null;
+            cached.documentFeatures = doc.getDocumentFeatures() != null ? new HashMap<>(doc.getDocumentFeatures().getAttributes()) : null;
+            cached.binaryDocument = doc.getBinaryDocument() != null ? doc.getBinaryDocument().clone() : null;
+            cached.linkedAttributes = doc.getLinkedAttributes() != null ? new HashMap<>(doc.getLinkedAttributes()) : null;
+            return cached;
+        }
+
+        /**
+         * Returns a new copy of the document, to be owned by the caller.
+         */
+        GenericDocument toDocument() {
+            GenericDocument doc = new GenericDocument();
+            doc.setText(text);
+            doc.setAnnotations(annotations != null ? annotations.toAnnotations() : null);
+
+            if (documentFeatures != null) {
+                GenericAnnotation features = new GenericAnnotation();
+                features.getAttributes().putAll(documentFeatures);
+                doc.setDocumentFeatures(features);
+            }
+            else {
+                doc.setDocumentFeatures(null);
+            }
+
+            doc.setBinaryDocument(binaryDocument != null ? binaryDocument.clone() : null);
+            doc.setLinkedAttributes(linkedAttributes != null ? new HashMap<>(linkedAttributes) : null);
+            return doc;
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package nlp.gate.processor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Runs the processing tasks using a fixed number of worker threads, scheduling the waiting tasks
+ * by the number of characters to process, so that the short documents are not queued behind the long ones
+ * (shortest-job-first). The tasks are aged by the waiting time, so that the long documents are not starved:
+ * a task waits at most its number of characters divided by the aging rate behind the tasks submitted later.
+ * The tasks are run in the submission order when aging rate is 0.
+ *
+ * The tasks can be submitted within the request classes (lanes), each with its own queue, the number of workers
+ * reserved for the class and the max number of workers it can use. The classes below their reserved workers
+ * are served first, the remaining idle workers can be borrowed by any class up to its max workers.
+ *
+ * The tasks can be submitted with the time until which these can wait to be run, after which these are removed
+ * from the queue and expired instead of being run, without taking a worker.
+ */
+public class GateTaskScheduler implements Executor {
+
+    /**
+     * The class of the tasks when no request classes are configured.
+     */
+    public static final String DEFAULT_REQUEST_CLASS = "default";
+
+    /**
+     * The tasks can wait to be run without a time limit.
+     */
+    public static final long NO_EXPIRY = Long.MAX_VALUE;
+
+    /**
+     * The task waiting to be run, ordered by its virtual start time.
+     */
+    private static class ScheduledTask implements Comparable<ScheduledTask> {
+        final Runnable task;
+        final long startTime;
+        final long sequence;
+        final long expiryTime;
+        final Runnable onExpired;
+
+        ScheduledTask(Runnable task, long startTime, long sequence, long expiryTime, Runnable onExpired) {
+            this.task = task;
+            this.startTime = startTime;
+            this.sequence = sequence;
+            this.expiryTime = expiryTime;
+            this.onExpired = onExpired;
+        }
+
+        boolean isExpired(long now) {
+            return expiryTime != NO_EXPIRY && expiryTime - now <= 0;
+        }
+
+        @Override
+        public int compareTo(ScheduledTask other) {
+            int result = Long.compare(startTime - other.startTime, 0);
+            return result != 0 ? result : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /**
+     * The request class with its queue of the waiting tasks and the number of workers running its tasks.
+     */
+    private static class RequestClass {
+        final String name;
+        final int reservedWorkers;
+        final int maxWorkers;
+        final PriorityQueue<ScheduledTask> queue = new PriorityQueue<>();
+        int runningWorkers = 0;
+
+        RequestClass(String name, int reservedWorkers, int maxWorkers) {
+            this.name = name;
+            this.reservedWorkers = reservedWorkers;
+            this.maxWorkers = maxWorkers;
+        }
+    }
+
+    /**
+     * The time (in ns) a task waits per each character, 0 if not size-aware.
+     */
+    private final double nanosPerChar;
+
+    private final Map<String, RequestClass> requestClasses = new LinkedHashMap<>();
+
+    private final RequestClass defaultClass;
+
+    private long sequence = 0;
+
+    private Logger log = LoggerFactory.getLogger(GateTaskScheduler.class);
+
+
+    public GateTaskScheduler(int numThreads, long agingCharsPerMs, String threadName) {
+        this(numThreads, agingCharsPerMs, Map.of(), null, threadName);
+    }
+
+    /**
+     * Creates the scheduler running the tasks within the request classes, with the default class used for the tasks
+     * of unknown classes (or the first one, when not specified).
+     */
+    public GateTaskScheduler(int numThreads, long agingCharsPerMs,
+                             Map<String, GateApplicationSetupParameters.RequestClassParameters> classesParams,
+                             String defaultClassName, String threadName) {
+        this.nanosPerChar = agingCharsPerMs > 0 ? (double) TimeUnit.MILLISECONDS.toNanos(1) / agingCharsPerMs : 0;
+
+        for (Map.Entry<String, GateApplicationSetupParameters.RequestClassParameters> entry : classesParams.entrySet()) {
+            int reservedWorkers = Math.max(0, Math.min(entry.getValue().getReservedControllers(), numThreads));
+            int maxWorkers = entry.getValue().getMaxControllers() > 0
+                    ? Math.min(entry.getValue().getMaxControllers(), numThreads) : numThreads;
+            requestClasses.put(entry.getKey(),
+                    new RequestClass(entry.getKey(), reservedWorkers, Math.max(reservedWorkers, maxWorkers)));
+        }
+        if (requestClasses.isEmpty()) {
+            requestClasses.put(DEFAULT_REQUEST_CLASS, new RequestClass(DEFAULT_REQUEST_CLASS, 0, numThreads));
+        }
+
+        RequestClass configuredDefault = defaultClassName != null ? requestClasses.get(defaultClassName) : null;
+        defaultClass = configuredDefault != null ? configuredDefault : requestClasses.values().iterator().next();
+
+        for (int i = 0; i < numThreads; ++i) {
+            Thread thread = new Thread(this::runWorker, threadName + "-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        Thread expiryThread = new Thread(this::runExpiry, threadName + "-expiry");
+        expiryThread.setDaemon(true);
+        expiryThread.start();
+    }
+
+
+    /**
+     * Returns the name of the request class the tasks are run within, the default one for unknown classes.
+     */
+    public String getRequestClass(String name) {
+        RequestClass requestClass = name != null ? requestClasses.get(name) : null;
+        return requestClass != null ? requestClass.name : defaultClass.name;
+    }
+
+    /**
+     * Runs the task within the default request class, scheduled as not processing any characters.
+     */
+    @Override
+    public void execute(Runnable task) {
+        execute(task, 0, null);
+    }
+
+    /**
+     * Runs the task processing the given number of characters, within the request class.
+     */
+    public void execute(Runnable task, long chars, String requestClassName) {
+        execute(task, chars, requestClassName, NO_EXPIRY, null);
+    }
+
+    /**
+     * Runs the task processing the given number of characters, within the request class, unless it waits
+     * to be run until the expiry time (in System.nanoTime() units), in which case onExpired is run instead.
+     */
+    public void execute(Runnable task, long chars, String requestClassName, long expiryTime, Runnable onExpired) {
+        long startTime = System.nanoTime() + (long) (chars * nanosPerChar);
+        synchronized (requestClasses) {
+            RequestClass requestClass = requestClasses.get(getRequestClass(requestClassName));
+            requestClass.queue.add(new ScheduledTask(task, startTime, sequence++, expiryTime, onExpired));
+            requestClasses.notifyAll();
+        }
+    }
+
+    /**
+     * Returns the number of tasks waiting to be run.
+     */
+    public int getQueued() {
+        synchronized (requestClasses) {
+            return requestClasses.values().stream().mapToInt(requestClass -> requestClass.queue.size()).sum();
+        }
+    }
+
+    /**
+     * Returns the number of running and waiting tasks per each request class.
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (requestClasses) {
+            for (RequestClass requestClass : requestClasses.values()) {
+                Map<String, Object> classStats = new LinkedHashMap<>();
+                classStats.put("reserved", requestClass.reservedWorkers);
+                classStats.put("max", requestClass.maxWorkers);
+                classStats.put("running", requestClass.runningWorkers);
+                classStats.put("queued", requestClass.queue.size());
+                stats.put(requestClass.name, classStats);
+            }
+        }
+        return stats;
+    }
+
+
+    /**
+     * Runs the tasks of the selected classes, until interrupted.
+     */
+    private void runWorker() {
+        while (!Thread.currentThread().isInterrupted()) {
+            RequestClass requestClass;
+            ScheduledTask task;
+            synchronized (requestClasses) {
+                try {
+                    while ((requestClass = selectClass()) == null) {
+                        requestClasses.wait();
+                    }
+                }
+                catch (InterruptedException e) {
+                    return;
+                }
+                task = requestClass.queue.poll();
+                if (!task.isExpired(System.nanoTime())) {
+                    requestClass.runningWorkers++;
+                }
+                else {
+                    requestClass = null;
+                }
+            }
+
+            // the handler of the expired task is run outside the lock, as it completes the waiting callers
+            if (requestClass == null) {
+                expire(task);
+                continue;
+            }
+
+            try {
+                task.task.run();
+            }
+            catch (RuntimeException e) {
+                log.error("Error running GATE processing task: " + e.getMessage());
+            }
+            finally {
+                synchronized (requestClasses) {
+                    requestClass.runningWorkers--;
+                    requestClasses.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the tasks which waited until their expiry time from the queues, until interrupted,
+     * so that these expire even when all the workers are busy.
+     */
+    private void runExpiry() {
+        while (!Thread.currentThread().isInterrupted()) {
+            List<ScheduledTask> expired = new ArrayList<>();
+            synchronized (requestClasses) {
+                try {
+                    long now = System.nanoTime();
+                    long earliestExpiry = NO_EXPIRY;
+                    for (RequestClass requestClass : requestClasses.values()) {
+                        for (ScheduledTask task : requestClass.queue) {
+                            if (task.isExpired(now)) {
+                                expired.add(task);
+                            }
+                            else if (task.expiryTime != NO_EXPIRY
+                                    && (earliestExpiry == NO_EXPIRY || task.expiryTime - earliestExpiry < 0)) {
+                                earliestExpiry = task.expiryTime;
+                            }
+                        }
+                        requestClass.queue.removeAll(expired);
+                    }
+
+                    if (expired.isEmpty()) {
+                        if (earliestExpiry == NO_EXPIRY) {
+                            requestClasses.wait();
+                        }
+                        else {
+                            TimeUnit.NANOSECONDS.timedWait(requestClasses, earliestExpiry - now);
+                        }
+                    }
+                }
+                catch (InterruptedException e) {
+                    return;
+                }
+            }
+            expired.forEach(this::expire);
+        }
+    }
+
+    /**
+     * Runs the handler of the expired task, which needs to be quick, as it is run instead of the task.
+     */
+    private void expire(ScheduledTask task) {
+        if (task.onExpired == null)
+            return;
+
+        try {
+            task.onExpired.run();
+        }
+        catch (RuntimeException e) {
+            log.error("Error expiring GATE processing task: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Selects the class of the next task to run: the classes below their reserved workers first,
+     * otherwise the classes below their max workers, the one with the earliest task in both cases.
+     * Returns null when no task can be run.
+     */
+    private RequestClass selectClass() {
+        List<RequestClass> borrowing = new ArrayList<>();
+        RequestClass selected = null;
+        for (RequestClass requestClass : requestClasses.values()) {
+            if (requestClass.queue.isEmpty())
+                continue;
+
+            if (requestClass.runningWorkers < requestClass.reservedWorkers) {
+                selected = getEarlier(selected, requestClass);
+            }
+            else if (requestClass.runningWorkers < requestClass.maxWorkers) {
+                borrowing.add(requestClass);
+            }
+        }
+        if (selected != null)
+            return selected;
+
+        for (RequestClass requestClass : borrowing) {
+            selected = getEarlier(selected, requestClass);
+        }
+        return selected;
+    }
+
+    private static RequestClass getEarlier(RequestClass selected, RequestClass requestClass) {
+        if (selected == null || requestClass.queue.peek().compareTo(selected.queue.peek()) < 0)
+            return requestClass;
+        return selected;
+    }
+}
@@ -1,5 +1,7 @@
 package nlp.gate.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
 import nlp.common.model.document.GenericDocument;
 import nlp.common.model.protocol.NlpInputPayload;
 import nlp.common.model.protocol.NlpProcessingResult;
@@ -12,13 +14,21 @@ import nlp.service.NlpService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 
 /**
- * Implements the NLP Service based on GATE framework
+ * Implements the NLP Service based on GATE framework.
+ * Multiple GATE applications can be run by the service, sharing the GATE framework and the loaded plugins,
+ * each with its own processor and GATE controllers pool.
  */
 public class GateNlpService extends NlpService {
 
@@ -28,75 +38,144 @@ public class GateNlpService extends NlpService {
     private class GateApplicationConfigurationKeys {
         // Starting from GATE 8.5 GATE_HOME is not needed anymore
         //static final String GATE_HOME = "gateHome";
+        static final String GATE_APPLICATIONS = "gateApplications";
         static final String GATE_APP_PATH = "gateAppPath";
         static final String GATE_CONTROLLER_NUM = "gateControllerNum";
+        static final String GATE_CONTROLLER_READY_NUM = "gateControllerReadyNum";
+        static final String GATE_CONTROLLER_MAX_NUM = "gateControllerMaxNum";
+        static final String WARMUP_MAX_ITERATIONS = "gateWarmupMaxIterations";
+        static final String WARMUP_DOCS_PATH = "gateWarmupDocsPath";
+        static final String GATE_CONTROLLER_GROW_WAIT_MS = "gateControllerGrowWaitMs";
+        static final String GATE_CONTROLLER_IDLE_TIMEOUT_MS = "gateControllerIdleTimeoutMs";
         static final String ANNOTATION_SETS = "gateAnnotationSets";
         static final String INCLUDE_ANNOTATION_TEXT = "gateIncludeAnnotationText";
+        static final String SKIPPABLE_RESOURCES = "gateSkippableResources";
+        static final String BINARY_DOCUMENT_INPUT = "gateBinaryDocumentInput";
+        static final String BINARY_DOCUMENT_FILTER = "gateBinaryDocumentFilter";
+        static final String BATCH_WINDOW_MS = "gateBatchWindowMs";
+        static final String BATCH_MAX_DOCS = "gateBatchMaxDocs";
+        static final String BATCH_MAX_CHARS = "gateBatchMaxChars";
+        static final String SCHEDULING_AGING_CHARS_PER_MS = "gateSchedulingAgingCharsPerMs";
+        static final String REQUEST_CLASSES = "gateRequestClasses";
+        static final String REQUEST_CLASS_RESERVED_CONTROLLERS = "reservedControllers";
+        static final String REQUEST_CLASS_MAX_CONTROLLERS = "maxControllers";
+        static final String REQUEST_CLASS_MAX_QUEUED = "maxQueued";
+        static final String DEFAULT_REQUEST_CLASS = "gateDefaultRequestClass";
+        static final String ADMISSION_MAX_QUEUED = "gateAdmissionMaxQueued";
+        static final String ADMISSION_MAX_WAIT_MS = "gateAdmissionMaxWaitMs";
+        static final String DOCUMENT_TIMEOUT_MS = "gateDocumentTimeoutMs";
+        static final String REQUEST_TIMEOUT_MS = "gateRequestTimeoutMs";
+        static final String CHUNK_MAX_CHARS = "gateChunkMaxChars";
+        static final String CHUNK_OVERLAP_CHARS = "gateChunkOverlapChars";
+        static final String CACHE_SIZE = "gateCacheSize";
+        static final String CACHE_DISK_PATH = "gateCacheDiskPath";
+        static final String CACHE_DISK_SIZE = "gateCacheDiskSize";
     }
 
     /**
-     * Used GATE documents processor
+     * The default maximum number of documents kept in the on-disk results cache
      */
-    private GateProcessor gateProcessor;
+    private static final int DEFAULT_CACHE_DISK_SIZE = 100000;
+
+    /**
+     * The name of the application configured by the top-level parameters
+     */
+    public static final String DEFAULT_APPLICATION = "default";
+
+    /**
+     * Used GATE documents processors, per each application name
+     */
+    private Map<String, GateProcessor> gateProcessors = new LinkedHashMap<>();
+
+    /**
+     * The application used when no application name is provided
+     */
+    private String defaultApplication;
 
 
     private Logger log = LoggerFactory.getLogger(GateNlpService.class);
 
 
-    public GateNlpService(ApplicationConfiguration config) throws Exception {
+    public GateNlpService(ApplicationConfiguration config, MeterRegistry meterRegistry) throws Exception {
         super(config);
 
-        GateApplicationSetupParameters gateParams = parseAppParams(config);
+        // the applications are initialized one after another, as these share the GATE framework
+        // and the registered plugins
+        for (Map.Entry<String, Map<String, Object>> app : getApplicationsParams(config.getAppParams()).entrySet()) {
+            log.info("Initializing GATE application: " + app.getKey());
+
+            GateApplicationSetupParameters gateParams = parseAppParams(app.getValue(), config.getAppVersion());
+            gateProcessors.put(app.getKey(),
+                    new GateProcessor(gateParams, createApplicationMeterRegistry(app.getKey(), meterRegistry)));
+        }
 
-        gateProcessor = new GateProcessor(gateParams);
+        defaultApplication = gateProcessors.keySet().iterator().next();
+        log.info("GATE applications initialized: " + gateProcessors.keySet() + ", default: " + defaultApplication);
     }
 
 
     /**
-     * Process a single request.
+     * Returns the names of the GATE applications run.
      */
     @Override
-    public NlpProcessingResult process(NlpInputPayload payload, Map<String, String> applicationParams) throws Exception {
+    public Collection<String> getApplications() {
+        return gateProcessors.keySet();
+    }
 
-        // parse the payload to GenericDocument handler
-        //
-        GateNlpContentDataMapper contentMapper = new GateNlpContentDataMapper(payload);
-        GateNlpResultDataMapper resultMapper = new GateNlpResultDataMapper();
 
-        GenericDocument doc = new GenericDocument();
-        doc.setText(contentMapper.getText());
+    /**
+     * Process a single request.
+     */
+    @Override
+    public NlpProcessingResult process(NlpInputPayload payload, Map<String, String> applicationParams) throws Exception {
+        return process(null, payload, applicationParams);
+    }
 
-        if (contentMapper.getAnnotations().size() > 0) {
-            doc.setAnnotations(contentMapper.getAnnotations());
-        }
+    /**
+     * Process a single request using the named application.
+     */
+    @Override
+    public NlpProcessingResult process(String application,
+                                       NlpInputPayload payload,
+                                       Map<String, String> applicationParams) throws Exception {
 
-        // TODO: handle (if required):
-        // - document-level features
-        // - linked attributes
-        // - binary document
+        GateProcessor gateProcessor = getProcessor(application);
 
         // run GATE processor
         //
         GenericDocument outDoc;
         try {
-            outDoc = gateProcessor.processDocument(doc, applicationParams);
+            outDoc = gateProcessor.processDocument(createInputDocument(payload), applicationParams);
         } catch (Exception e) {
             String message = "Error processing NLP query: " + e.getMessage();
             log.error(message);
             throw e;
         }
 
-        // prepare the result payload
-        //
-        resultMapper.setText(outDoc.getText());
-        resultMapper.setAnnotations(outDoc.getAnnotations());
-        resultMapper.setDocumentFeatures(outDoc.getDocumentFeatures());
+        return createProcessingResult(outDoc);
+    }
 
-        // TODO: set in payload (if required):
-        // - binary document
-        // - enable/disable text inclusion
+    /**
+     * Process a single request using the named application, without blocking the calling thread.
+     */
+    @Override
+    public CompletableFuture<NlpProcessingResult> processAsync(String application,
+                                                               NlpInputPayload payload,
+                                                               Map<String, String> applicationParams) {
+        GateProcessor gateProcessor;
+        GenericDocument doc;
+        try {
+            gateProcessor = getProcessor(application);
+            doc = createInputDocument(payload);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
 
-        return resultMapper.getProcessingResult();
+        // run GATE processor
+        //
+        return gateProcessor.processDocumentAsync(doc, applicationParams)
+                .whenComplete((outDoc, e) -> logProcessingError(e))
+                .thenApply(this::createProcessingResult);
     }
 
 
@@ -106,78 +185,373 @@ public class GateNlpService extends NlpService {
     @Override
     public List<NlpProcessingResult> processBulk(List<NlpInputPayload> payloads,
                                                  Map<String, String> applicationParams) throws Exception {
+        return processBulk(null, payloads, applicationParams);
+    }
 
-        // parse the payload to GenericDocument handler
-        //
-        List<GenericDocument> inputDocuments = new ArrayList<>();
-        for (NlpInputPayload singlePayload : payloads) {
-            GateNlpContentDataMapper contentMapper = new GateNlpContentDataMapper(singlePayload);
-
-            GenericDocument doc = new GenericDocument();
-            doc.setText(contentMapper.getText());
-
-            if (contentMapper.getAnnotations().size() > 0) {
-                doc.setAnnotations(contentMapper.getAnnotations());
-            }
+    /**
+     * Process a bulk request using the named application.
+     */
+    @Override
+    public List<NlpProcessingResult> processBulk(String application,
+                                                 List<NlpInputPayload> payloads,
+                                                 Map<String, String> applicationParams) throws Exception {
 
-            // TODO: handle (if required):
-            // - document-level features
-            // - linked attributes
-            // - binary document
-
-            inputDocuments.add(doc);
-        }
+        GateProcessor gateProcessor = getProcessor(application);
 
         // run GATE processor
         //
         List<GenericDocument> outDocs;
         try {
-            outDocs = gateProcessor.processDocumentsBulk(inputDocuments, applicationParams);
+            outDocs = gateProcessor.processDocumentsBulk(createInputDocuments(payloads), applicationParams);
         } catch (Exception e) {
             String message = "Error processing NLP query: " + e.getMessage();
             log.error(message);
             throw e;
         }
 
-        // prepare the result payload
+        return createProcessingResults(outDocs);
+    }
+
+    /**
+     * Process a bulk request using the named application, without blocking the calling thread.
+     */
+    @Override
+    public CompletableFuture<List<NlpProcessingResult>> processBulkAsync(String application,
+                                                                         List<NlpInputPayload> payloads,
+                                                                         Map<String, String> applicationParams) {
+        GateProcessor gateProcessor;
+        List<GenericDocument> inputDocuments;
+        try {
+            gateProcessor = getProcessor(application);
+            inputDocuments = createInputDocuments(payloads);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        // run GATE processor
         //
+        return gateProcessor.processDocumentsBulkAsync(inputDocuments, applicationParams)
+                .whenComplete((outDocs, e) -> logProcessingError(e))
+                .thenApply(this::createProcessingResults);
+    }
+
+
+    /**
+     * Parses the payload to GenericDocument handler.
+     */
+    private GenericDocument createInputDocument(NlpInputPayload payload) {
+        GateNlpContentDataMapper contentMapper = new GateNlpContentDataMapper(payload);
+
+        GenericDocument doc = new GenericDocument();
+        doc.setText(contentMapper.getText());
+
+        if (contentMapper.getAnnotations().size() > 0) {
+            doc.setAnnotations(contentMapper.getAnnotations());
+        }
+
+        // the document processed by the previous step is restored directly from its binary form
+        byte[] binaryDoc = contentMapper.getBinaryDocument();
+        if (binaryDoc.length > 0) {
+            doc.setBinaryDocument(binaryDoc);
+        }
+
+        // TODO: handle (if required):
+        // - document-level features
+        // - linked attributes
+
+        return doc;
+    }
+
+    private List<GenericDocument> createInputDocuments(List<NlpInputPayload> payloads) {
+        List<GenericDocument> inputDocuments = new ArrayList<>();
+        for (NlpInputPayload singlePayload : payloads) {
+            inputDocuments.add(createInputDocument(singlePayload));
+        }
+        return inputDocuments;
+    }
+
+    /**
+     * Prepares the result payload from the processed document.
+     */
+    private NlpProcessingResult createProcessingResult(GenericDocument outDoc) {
+        GateNlpResultDataMapper resultMapper = new GateNlpResultDataMapper();
+        resultMapper.setText(outDoc.getText());
+        resultMapper.setAnnotations(outDoc.getAnnotations());
+        resultMapper.setDocumentFeatures(outDoc.getDocumentFeatures());
+        if (outDoc.getBinaryDocument() != null) {
+            resultMapper.setBinaryDocument(outDoc.getBinaryDocument());
+        }
+
+        return resultMapper.getProcessingResult();
+    }
+
+    private List<NlpProcessingResult> createProcessingResults(List<GenericDocument> outDocs) {
         List<NlpProcessingResult> results = new ArrayList<>();
         for (GenericDocument doc : outDocs) {
-            GateNlpResultDataMapper resultMapper = new GateNlpResultDataMapper();
-            resultMapper.setText(doc.getText());
-            resultMapper.setAnnotations(doc.getAnnotations());
-            resultMapper.setDocumentFeatures(doc.getDocumentFeatures());
+            results.add(createProcessingResult(doc));
+        }
+        return results;
+    }
+
+    private void logProcessingError(Throwable e) {
+        if (e == null)
+            return;
+
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        log.error("Error processing NLP query: " + cause.getMessage());
+    }
+
+
+    /**
+     * Returns the processing statistics, per each application when running multiple ones.
+     */
+    @Override
+    public Map<String, Object> getStatistics() {
+        if (gateProcessors.size() == 1) {
+            return gateProcessors.get(defaultApplication).getStatistics();
+        }
 
-            // TODO: set in payload (if required):
-            // - binary document
-            // - enable/disable text inclusion
+        Map<String, Object> stats = new LinkedHashMap<>();
+        gateProcessors.forEach((name, processor) -> stats.put(name, processor.getStatistics()));
+        return stats;
+    }
 
-            results.add(resultMapper.getProcessingResult());
+    /**
+     * Checks whether enough GATE controllers are available to start processing, in all the applications.
+     */
+    @Override
+    public boolean isReady() {
+        return gateProcessors.values().stream().allMatch(GateProcessor::isReady);
+    }
+
+
+    private GateProcessor getProcessor(String application) {
+        if (application == null) {
+            return gateProcessors.get(defaultApplication);
         }
 
-        return results;
+        GateProcessor gateProcessor = gateProcessors.get(application);
+        if (gateProcessor == null) {
+            throw new IllegalArgumentException("Unknown GATE application: " + application);
+        }
+        return gateProcessor;
+    }
+
+
+    /**
+     * Returns the parameters of each application: the default one configured by the top-level parameters
+     * (if the application path is provided) and the named ones configured in "gateApplications",
+     * which inherit the top-level parameters.
+     */
+    private static Map<String, Map<String, Object>> getApplicationsParams(Map<String, Object> appParams) {
+        Map<String, Map<String, Object>> applicationsParams = new LinkedHashMap<>();
+
+        Map<String, Object> commonParams = new HashMap<>(appParams);
+        Object applications = commonParams.remove(GateApplicationConfigurationKeys.GATE_APPLICATIONS);
+
+        if (commonParams.containsKey(GateApplicationConfigurationKeys.GATE_APP_PATH)) {
+            applicationsParams.put(DEFAULT_APPLICATION, commonParams);
+        }
+
+        if (applications instanceof Map) {
+            for (Map.Entry<?, ?> app : ((Map<?, ?>) applications).entrySet()) {
+                String name = app.getKey().toString();
+                Map<?, ?> appOwnParams = (Map<?, ?>) app.getValue();
+
+                Map<String, Object> params = new HashMap<>(commonParams);
+                appOwnParams.forEach((key, value) -> params.put(key.toString(), value));
+
+                // keep the on-disk results caches of the applications separate
+                if (commonParams.containsKey(GateApplicationConfigurationKeys.CACHE_DISK_PATH)
+                        && !appOwnParams.containsKey(GateApplicationConfigurationKeys.CACHE_DISK_PATH)) {
+                    params.put(GateApplicationConfigurationKeys.CACHE_DISK_PATH,
+                            new File(commonParams.get(GateApplicationConfigurationKeys.CACHE_DISK_PATH).toString(), name).getPath());
+                }
+
+                applicationsParams.put(name, params);
+            }
+        }
+
+        if (applicationsParams.isEmpty()) {
+            throw new IllegalArgumentException("No GATE application configured");
+        }
+        return applicationsParams;
+    }
+
+    /**
+     * Returns the registry of the application metrics, tagged with the application name.
+     */
+    private static MeterRegistry createApplicationMeterRegistry(String application, MeterRegistry meterRegistry) {
+        CompositeMeterRegistry appMeterRegistry = new CompositeMeterRegistry();
+        appMeterRegistry.config().commonTags("app", application);
+        appMeterRegistry.add(meterRegistry);
+        return appMeterRegistry;
     }
 
 
-    private GateApplicationSetupParameters parseAppParams(ApplicationConfiguration config) {
+    private GateApplicationSetupParameters parseAppParams(Map<String, Object> appParams, String appVersion) {
 
         GateApplicationSetupParameters gateParams = new GateApplicationSetupParameters();
-        gateParams.setGateAppPath((String)config.getAppParams().get(GateApplicationConfigurationKeys.GATE_APP_PATH));
+        gateParams.setGateAppPath((String)appParams.get(GateApplicationConfigurationKeys.GATE_APP_PATH));
+        gateParams.setAppVersion(appVersion);
 
-        if (config.getAppParams().containsKey(GateApplicationConfigurationKeys.GATE_CONTROLLER_NUM)) {
-            gateParams.setGateControllersNum(Integer.parseInt(config.getAppParams()
+        if (appParams.containsKey(GateApplicationConfigurationKeys.GATE_CONTROLLER_NUM)) {
+            gateParams.setGateControllersNum(Integer.parseInt(appParams
                     .get(GateApplicationConfigurationKeys.GATE_CONTROLLER_NUM).toString()));
         }
 
-        if (config.getAppParams().containsKey(GateApplicationConfigurationKeys.ANNOTATION_SETS)) {
-            gateParams.setAnnotationSets((String)config.getAppParams().get(GateApplicationConfigurationKeys.ANNOTATION_SETS));
+        if (appParams.containsKey(GateApplicationConfigurationKeys.GATE_CONTROLLER_READY_NUM)) {
+            gateParams.setGateControllersReadyNum(Integer.parseInt(appParams
+                    .get(GateApplicationConfigurationKeys.GATE_CONTROLLER_READY_NUM).toString()));
+        }
+
+        if (appParams.containsKey(GateApplicationConfigurationKeys.WARMUP_MAX_ITERATIONS)) {
+            gateParams.setWarmupMaxIterations(Integer.parseInt(appParams
+                    .get(GateApplicationConfigurationKeys.WARMUP_MAX_ITERATIONS).toString()));
+        }
+
+        if (appParams.containsKey(GateApplicationConfigurationKeys.WARMUP_DOCS_PATH)) {
+            gateParams.setWarmupDocumentsPath((String)appParams.get(GateApplicationConfigurationKeys.WARMUP_DOCS_PATH));
+        }
+
+        if (appParams.containsKey(GateApplicationConfigurationKeys.GATE_CONTROLLER_MAX_NUM)) {
+            gateParams.setGateControllersMaxNum(Integer.parseInt(appParams
+                    .get(GateApplicationConfigurationKeys.GATE_CONTROLLER_MAX_NUM).toString()));
+        }
+
+        if (appParams.containsKey(GateApplicationConfigurationKeys.GATE_CONTROLLER_GROW_WAIT_MS)) {
+            gateParams.setGateControllersGrowWaitMs(Long.parseLong(appParams
+                    .get(GateApplicationConfigurationKeys.GATE_CONTROLLER_GROW_WAIT_MS).toString()));
+        }
+
+        if (appParams.containsKey(GateApplicationConfigurationKeys.GATE_CONTROLLER_IDLE_TIMEOUT_MS)) {
+            gateParams.setGateControllersIdleTimeoutMs(Long.parseLong(appParams
+                    .get(GateApplicationConfigurationKeys.GATE_CONTROLLER_IDLE_TIMEOUT_MS).toString()));
+        }
+
+        if (appParams.containsKey(GateApplicationConfigurationKeys.ANNOTATION_SETS)) {
+            gateParams.setAnnotationSets((String)appParams.get(GateApplicationConfigurationKeys.ANNOTATION_SETS));
+        }
+
+        if (appParams.containsKey(GateApplicationConfigurationKeys.INCLUDE_ANNOTATION_TEXT)) {
+            gateParams.setIncludeAnotationText((boolean)appParams.get(GateApplicationConfigurationKeys.INCLUDE_ANNOTATION_TEXT));
+        }
+
+        if (appParams.containsKey(GateApplicationConfigurationKeys.BINARY_DOCUMENT_INPUT)) {
+            gateParams.setBinaryDocumentInput((boolean)appParams.get(GateApplicationConfigurationKeys.BINARY_DOCUMENT_INPUT));
+        }
+
+        if (appParams.containsKey(GateApplicationConfigurationKeys.BINARY_DOCUMENT_FILTER)) {
+            gateParams.setBinaryDocumentFilter(appParams.get(GateApplicationConfigurationKeys.BINARY_DOCUMENT_FILTER).toString());
+        }
+
+        if (appParams.get(GateApplicationConfigurationKeys.SKIPPABLE_RESOURCES) instanceof Map) {
+            Map<?, ?> resources = (Map<?, ?>) appParams.get(GateApplicationConfigurationKeys.SKIPPABLE_RESOURCES);
+            for (Map.Entry<?, ?> resource : resources.entrySet()) {
+                gateParams.getSkippableResources().put(resource.getKey().toString(), resource.getValue().toString());
+            }
+        }
+
+        if (appParams.containsKey(GateApplicationConfigurationKeys.BATCH_WINDOW_MS)) {
+            gateParams.setBatchWindowMs(Integer.parseInt(appParams
+                    .get(GateApplicationConfigurationKeys.BATCH_WINDOW_MS).toString()));
+        }
+
+        if (appParams.containsKey(GateApplicationConfigurationKeys.BATCH_MAX_DOCS)) {
+            gateParams.setBatchMaxDocuments(Integer.parseInt(appParams
+                    .get(GateApplicationConfigurationKeys.BATCH_MAX_DOCS).toString()));
+        }
+
+        if (appParams.containsKey(GateApplicationConfigurationKeys.BATCH_MAX_CHARS)) {
+            gateParams.setBatchMaxChars(Integer.parseInt(appParams
+                    .get(GateApplicationConfigurationKeys.BATCH_MAX_CHARS).toString()));
+        }
+
+        if (appParams.containsKey(GateApplicationConfigurationKeys.SCHEDULING_AGING_CHARS_PER_MS)) {
+            gateParams.setSchedulingAgingCharsPerMs(Long.parseLong(appParams
+                    .get(GateApplicationConfigurationKeys.SCHEDULING_AGING_CHARS_PER_MS).toString()));
+        }
+
+        if (appParams.get(GateApplicationConfigurationKeys.REQUEST_CLASSES) instanceof Map) {
+            Map<?, ?> requestClasses = (Map<?, ?>) appParams.get(GateApplicationConfigurationKeys.REQUEST_CLASSES);
+            for (Map.Entry<?, ?> requestClass : requestClasses.entrySet()) {
+                gateParams.getRequestClasses().put(requestClass.getKey().toString(),
+                        parseRequestClassParams((Map<?, ?>) requestClass.getValue()));
+            }
+        }
+
+        if (appParams.containsKey(GateApplicationConfigurationKeys.DEFAULT_REQUEST_CLASS)) {
+            gateParams.setDefaultRequestClass((String)appParams.get(GateApplicationConfigurationKeys.DEFAULT_REQUEST_CLASS));
+        }
+
+        if (appParams.containsKey(GateApplicationConfigurationKeys.ADMISSION_MAX_QUEUED)) {
+            gateParams.setAdmissionMaxQueued(Integer.parseInt(appParams
+                    .get(GateApplicationConfigurationKeys.ADMISSION_MAX_QUEUED).toString()));
+        }
+
+        if (appParams.containsKey(GateApplicationConfigurationKeys.ADMISSION_MAX_WAIT_MS)) {
+            gateParams.setAdmissionMaxWaitMs(Long.parseLong(appParams
+                    .get(GateApplicationConfigurationKeys.ADMISSION_MAX_WAIT_MS).toString()));
+        }
+
+        if (appParams.containsKey(GateApplicationConfigurationKeys.DOCUMENT_TIMEOUT_MS)) {
+            gateParams.setDocumentTimeoutMs(Long.parseLong(appParams
+                    .get(GateApplicationConfigurationKeys.DOCUMENT_TIMEOUT_MS).toString()));
+        }
+
+        if (appParams.containsKey(GateApplicationConfigurationKeys.REQUEST_TIMEOUT_MS)) {
+            gateParams.setRequestTimeoutMs(Long.parseLong(appParams
+                    .get(GateApplicationConfigurationKeys.REQUEST_TIMEOUT_MS).toString()));
+        }
+
+        if (appParams.containsKey(GateApplicationConfigurationKeys.CHUNK_MAX_CHARS)) {
+            gateParams.setChunkMaxChars(Integer.parseInt(appParams
+                    .get(GateApplicationConfigurationKeys.CHUNK_MAX_CHARS).toString()));
+        }
+
+        if (appParams.containsKey(GateApplicationConfigurationKeys.CHUNK_OVERLAP_CHARS)) {
+            gateParams.setChunkOverlapChars(Integer.parseInt(appParams
+                    .get(GateApplicationConfigurationKeys.CHUNK_OVERLAP_CHARS).toString()));
         }
 
-        if (config.getAppParams().containsKey(GateApplicationConfigurationKeys.INCLUDE_ANNOTATION_TEXT)) {
-            gateParams.setIncludeAnotationText((boolean)config.getAppParams().get(GateApplicationConfigurationKeys.INCLUDE_ANNOTATION_TEXT));
+        if (appParams.containsKey(GateApplicationConfigurationKeys.CACHE_SIZE)) {
+            gateParams.setCacheMaxEntries(Integer.parseInt(appParams
+                    .get(GateApplicationConfigurationKeys.CACHE_SIZE).toString()));
+        }
+
+        if (appParams.containsKey(GateApplicationConfigurationKeys.CACHE_DISK_PATH)) {
+            gateParams.setCacheDiskPath((String)appParams.get(GateApplicationConfigurationKeys.CACHE_DISK_PATH));
+            gateParams.setCacheDiskMaxEntries(DEFAULT_CACHE_DISK_SIZE);
+        }
+
+        if (appParams.containsKey(GateApplicationConfigurationKeys.CACHE_DISK_SIZE)) {
+            gateParams.setCacheDiskMaxEntries(Integer.parseInt(appParams
+                    .get(GateApplicationConfigurationKeys.CACHE_DISK_SIZE).toString()));
         }
 
         return gateParams;
     }
 
+    private static GateApplicationSetupParameters.RequestClassParameters parseRequestClassParams(Map<?, ?> classParams) {
+        GateApplicationSetupParameters.RequestClassParameters requestClassParams =
+                new GateApplicationSetupParameters.RequestClassParameters();
+
+        if (classParams.containsKey(GateApplicationConfigurationKeys.REQUEST_CLASS_RESERVED_CONTROLLERS)) {
+            requestClassParams.setReservedControllers(Integer.parseInt(classParams
+                    .get(GateApplicationConfigurationKeys.REQUEST_CLASS_RESERVED_CONTROLLERS).toString()));
+        }
+
+        if (classParams.containsKey(GateApplicationConfigurationKeys.REQUEST_CLASS_MAX_CONTROLLERS)) {
+            requestClassParams.setMaxControllers(Integer.parseInt(classParams
+                    .get(GateApplicationConfigurationKeys.REQUEST_CLASS_MAX_CONTROLLERS).toString()));
+        }
+
+        if (classParams.containsKey(GateApplicationConfigurationKeys.REQUEST_CLASS_MAX_QUEUED)) {
+            requestClassParams.setMaxQueued(Integer.parseInt(classParams
+                    .get(GateApplicationConfigurationKeys.REQUEST_CLASS_MAX_QUEUED).toString()));
+        }
+
+        return requestClassParams;
+    }
+
 }
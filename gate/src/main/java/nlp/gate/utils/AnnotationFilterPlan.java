@@ -0,0 +1,165 @@
+package nlp.gate.utils;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * An immutable plan for extracting the annotations from GATE documents, compiled from the
+ * annotation set/type filters in form: set1:type1, set2:*, *:type3, *:* .
+ * The plan resolves upfront which types are to be extracted from which annotation sets,
+ * so that no filter structures need to be created when processing the documents.
+ */
+public final class AnnotationFilterPlan {
+
+    static final String FILTER_MATCH_ANY = "*";
+
+    /**
+     * Represents all the types available in an annotation set.
+     */
+    private static final Set<String> ALL_TYPES = Collections.singleton(FILTER_MATCH_ANY);
+
+    /**
+     * The plan matching all the annotations from all the annotation sets: *:*
+     */
+    public static final AnnotationFilterPlan MATCH_ALL = new AnnotationFilterPlan(true,
+            Collections.emptySet(), Collections.emptyMap());
+
+    /**
+     * Whether all the annotations are to be extracted.
+     */
+    private final boolean matchAll;
+
+    /**
+     * The types to be extracted from any of the annotation sets: *:type
+     */
+    private final Set<String> anyTypes;
+
+    /**
+     * The types to be extracted from the specific annotation sets, including the types from
+     * any of the sets: set:type and set:*
+     */
+    private final Map<String, Set<String>> setTypes;
+
+
+    private AnnotationFilterPlan(boolean matchAll, Set<String> anyTypes, Map<String, Set<String>> setTypes) {
+        this.matchAll = matchAll;
+        this.anyTypes = anyTypes;
+        this.setTypes = setTypes;
+    }
+
+
+    /**
+     * Compiles the plan from the annotation set name : type names map, as provided by
+     * GateUtils.getAnnotationTypeSets().
+     */
+    public static AnnotationFilterPlan compile(Map<String, Set<String>> annotationTypesSets) {
+        Set<String> anyTypes = annotationTypesSets.getOrDefault(FILTER_MATCH_ANY, Collections.emptySet());
+        if (anyTypes.contains(FILTER_MATCH_ANY)) {
+            return MATCH_ALL;
+        }
+
+        Map<String, Set<String>> setTypes = new HashMap<>();
+        for (Map.Entry<String, Set<String>> entry : annotationTypesSets.entrySet()) {
+            if (entry.getKey().equals(FILTER_MATCH_ANY)) {
+                continue;
+            }
+
+            // set:* takes precedence over any specific types in the same set
+            if (entry.getValue().contains(FILTER_MATCH_ANY)) {
+                setTypes.put(entry.getKey(), ALL_TYPES);
+            } else {
+                Set<String> types = new HashSet<>(entry.getValue());
+                types.addAll(anyTypes);
+                setTypes.put(entry.getKey(), Collections.unmodifiableSet(types));
+            }
+        }
+
+        return new AnnotationFilterPlan(false,
+                Collections.unmodifiableSet(new HashSet<>(anyTypes)),
+                Collections.unmodifiableMap(setTypes));
+    }
+
+
+    /**
+     * Returns the plan extracting only the annotations matched by both this and the other plan,
+     * e.g. to restrict the filters requested by the client to the ones available in the application.
+     */
+    public AnnotationFilterPlan intersect(AnnotationFilterPlan other) {
+        if (other.matchAll) {
+            return this;
+        }
+        if (matchAll) {
+            return other;
+        }
+
+        Set<String> resultAnyTypes = intersectTypes(anyTypes, other.anyTypes);
+
+        Set<String> setNames = new HashSet<>(setTypes.keySet());
+        setNames.addAll(other.setTypes.keySet());
+
+        Map<String, Set<String>> resultSetTypes = new HashMap<>();
+        for (String setName : setNames) {
+            Set<String> types = intersectTypes(getTypes(setName), other.getTypes(setName));
+            if (!types.isEmpty()) {
+                resultSetTypes.put(setName, types);
+            }
+        }
+
+        return new AnnotationFilterPlan(false, resultAnyTypes, Collections.unmodifiableMap(resultSetTypes));
+    }
+
+    private static Set<String> intersectTypes(Set<String> types1, Set<String> types2) {
+        if (isAllTypes(types1)) {
+            return types2;
+        }
+        if (isAllTypes(types2)) {
+            return types1;
+        }
+
+        Set<String> types = new HashSet<>(types1);
+        types.retainAll(types2);
+        return Collections.unmodifiableSet(types);
+    }
+
+
+    public boolean isMatchAll() {
+        return matchAll;
+    }
+
+    /**
+     * Whether the annotations need to be looked up in all the annotation sets of the document,
+     * or only in the ones explicitly listed in the plan.
+     */
+    public boolean isMatchAnySet() {
+        return matchAll || !anyTypes.isEmpty();
+    }
+
+    public Set<String> getAnyTypes() {
+        return anyTypes;
+    }
+
+    public Map<String, Set<String>> getSetTypes() {
+        return setTypes;
+    }
+
+    /**
+     * Returns the types to be extracted from the given annotation set, an empty set if none.
+     */
+    public Set<String> getTypes(String setName) {
+        if (matchAll) {
+            return ALL_TYPES;
+        }
+        return setTypes.getOrDefault(setName, anyTypes);
+    }
+
+    /**
+     * Checks whether all the types are to be extracted, as returned by getTypes().
+     */
+    public static boolean isAllTypes(Set<String> types) {
+        return types == ALL_TYPES;
+    }
+}
@@ -0,0 +1,158 @@
+package nlp.gate.utils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import gate.Annotation;
+import gate.FeatureMap;
+import nlp.common.model.annotation.ColumnarAnnotations;
+import nlp.common.model.annotation.GenericAnnotation;
+import nlp.common.model.annotation.StreamedAnnotationList;
+
+
+/**
+ * The list of annotations backed by the GATE annotations extracted from the processed document.
+ * Only the references to GATE annotations are kept, which remain valid after the document is released,
+ * so that the annotations are serialized directly when writing the response.
+ */
+public class GateAnnotationList extends StreamedAnnotationList {
+
+    private final List<Annotation> annotations = new ArrayList<>();
+
+    /**
+     * The annotation set names, per each annotation.
+     */
+    private final List<String> setNames = new ArrayList<>();
+
+    /**
+     * The document text, used to include the annotation text, null otherwise.
+     */
+    private final String text;
+
+    private final boolean includeAtomicNodeIds;
+
+
+    GateAnnotationList(String text, boolean includeAtomicNodeIds) {
+        this.text = text;
+        this.includeAtomicNodeIds = includeAtomicNodeIds;
+    }
+
+
+    void addAnnotation(Annotation annotation, String setName) {
+        annotations.add(annotation);
+        setNames.add(setName);
+    }
+
+
+    @Override
+    public int size() {
+        return annotations.size();
+    }
+
+    /**
+     * Converts the annotation to Generic Annotation, on each access.
+     */
+    @Override
+    public GenericAnnotation get(int index) {
+        Annotation annotation = annotations.get(index);
+        GenericAnnotation atomicAnn = GateUtils.toAtomicAnnotation(annotation, setNames.get(index), includeAtomicNodeIds);
+        if (text != null) {
+            atomicAnn.setAttribute("text", getAnnotationText(annotation));
+        }
+        return atomicAnn;
+    }
+
+
+    /**
+     * Writes the annotation with the same fields as its Generic Annotation, hence the features
+     * take precedence over the mandatory fields, and the text over the features.
+     */
+    @Override
+    protected void writeAnnotation(int index, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        Annotation annotation = annotations.get(index);
+        FeatureMap features = annotation.getFeatures();
+
+        gen.writeStartObject();
+
+        // mandatory
+        if (!hasFeature(features, "type"))
+            gen.writeStringField("type", annotation.getType());
+        if (!hasFeature(features, "start_idx"))
+            gen.writeNumberField("start_idx", annotation.getStartNode().getOffset());
+        if (!hasFeature(features, "end_idx"))
+            gen.writeNumberField("end_idx", annotation.getEndNode().getOffset());
+
+        // attributes
+        if (!hasFeature(features, "set"))
+            gen.writeStringField("set", setNames.get(index));
+        if (!hasFeature(features, "id"))
+            gen.writeNumberField("id", annotation.getId());
+
+        if (includeAtomicNodeIds) {
+            if (!hasFeature(features, "start_node_id"))
+                gen.writeStringField("start_node_id", annotation.getStartNode().getId().toString());
+            if (!hasFeature(features, "end_node_id"))
+                gen.writeStringField("end_node_id", annotation.getEndNode().getId().toString());
+        }
+
+        // gate features
+        if (features != null) {
+            for (Map.Entry<Object, Object> entry : features.entrySet()) {
+                String name = entry.getKey().toString();
+                if (text != null && name.equals("text"))
+                    continue;
+                provider.defaultSerializeField(name, entry.getValue(), gen);
+            }
+        }
+
+        if (text != null) {
+            gen.writeStringField("text", getAnnotationText(annotation));
+        }
+
+        gen.writeEndObject();
+    }
+
+
+    /**
+     * Encodes the annotations in the columnar format directly from GATE annotations.
+     */
+    @Override
+    public ColumnarAnnotations toColumnar() {
+        ColumnarAnnotations.Builder builder = new ColumnarAnnotations.Builder(annotations.size());
+        for (int i = 0; i < annotations.size(); ++i) {
+            Annotation annotation = annotations.get(i);
+            builder.addAnnotation(annotation.getType(), setNames.get(i),
+                    annotation.getStartNode().getOffset(), annotation.getEndNode().getOffset(), annotation.getId());
+
+            if (includeAtomicNodeIds) {
+                builder.addFeature("start_node_id", annotation.getStartNode().getId().toString());
+                builder.addFeature("end_node_id", annotation.getEndNode().getId().toString());
+            }
+
+            FeatureMap features = annotation.getFeatures();
+            if (features != null) {
+                for (Map.Entry<Object, Object> entry : features.entrySet()) {
+                    builder.addFeature(entry.getKey().toString(), entry.getValue());
+                }
+            }
+
+            if (text != null) {
+                builder.addFeature("text", getAnnotationText(annotation));
+            }
+        }
+        return builder.build();
+    }
+
+
+    private String getAnnotationText(Annotation annotation) {
+        return text.substring(annotation.getStartNode().getOffset().intValue(),
+                annotation.getEndNode().getOffset().intValue());
+    }
+
+    private static boolean hasFeature(FeatureMap features, String name) {
+        return features != null && !features.isEmpty() && features.containsKey(name);
+    }
+}
@@ -0,0 +1,160 @@
+package nlp.gate.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import gate.Document;
+
+
+/**
+ * Encodes the processed GATE documents in a compact binary format (Java serialization, optionally compressed),
+ * so that these can be passed between the processing steps and restored directly, without creating
+ * the GATE documents and mapping the annotations again.
+ * As the binary documents come from the clients, only the GATE document and annotation classes and the basic
+ * Java classes are deserialized, within the limits of the object graph and of the (decompressed) document size.
+ */
+public class GateDocumentSerializer {
+
+    /**
+     * The max size (in bytes) of the binary document, after decompressing.
+     */
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * The limits of the deserialized object graph and the classes allowed to be deserialized by default,
+     * in the ObjectInputFilter pattern syntax. The depth limit keeps the nested collections from being
+     * used to exhaust the CPU or memory, while being well above the depth of the GATE documents.
+     */
+    public static final String DEFAULT_FILTER_PATTERN = "maxdepth=32;maxrefs=10000000;maxarray=10000000;"
+            + "maxbytes=" + DEFAULT_MAX_BYTES + ";"
+            + "gate.*;gate.corpora.DocumentImpl;gate.corpora.DocumentContentImpl;gate.annotation.*;gate.relations.*;"
+            + "gate.creole.AbstractLanguageResource;gate.creole.AbstractResource;gate.util.AbstractFeatureBearer;"
+            + "gate.util.SimpleFeatureMapImpl;gate.util.SimpleMapImpl;gate.util.SimpleMapImpl$*;"
+            + "java.lang.*;java.util.*;java.math.*;java.net.URL;!*";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final ObjectInputFilter filter;
+
+    private final long maxBytes;
+
+
+    public GateDocumentSerializer() {
+        this(DEFAULT_FILTER_PATTERN);
+    }
+
+    public GateDocumentSerializer(String filterPattern) {
+        this(filterPattern, DEFAULT_MAX_BYTES);
+    }
+
+    public GateDocumentSerializer(String filterPattern, long maxBytes) {
+        this.filter = ObjectInputFilter.Config.createFilter(filterPattern);
+        this.maxBytes = maxBytes;
+    }
+
+
+    /**
+     * Encodes the GATE document, compressing it if requested.
+     */
+    public byte[] serialize(Document gateDoc, boolean compressed) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(BUFFER_SIZE);
+        OutputStream os = compressed ? new GZIPOutputStream(bytes, BUFFER_SIZE) : bytes;
+        try (ObjectOutputStream oos = new ObjectOutputStream(os)) {
+            oos.writeObject(gateDoc);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Restores the GATE document, detecting whether it was compressed.
+     */
+    public Document deserialize(byte[] binaryDoc) throws IOException {
+        if (binaryDoc.length > maxBytes) {
+            throw new IOException("Binary document exceeds the max size: " + maxBytes + " bytes");
+        }
+
+        InputStream is = new ByteArrayInputStream(binaryDoc);
+        if (isCompressed(binaryDoc)) {
+            is = new LimitedInputStream(new GZIPInputStream(is, BUFFER_SIZE), maxBytes);
+        }
+
+        try (ObjectInputStream ois = new ObjectInputStream(is)) {
+            ois.setObjectInputFilter(filter);
+            Object obj = ois.readObject();
+            if (!(obj instanceof Document)) {
+                throw new IOException("Not a GATE document: " + (obj != null ? obj.getClass().getName() : null));
+            }
+            return (Document) obj;
+        }
+        catch (ClassNotFoundException e) {
+            throw new IOException("Unknown class in the binary document: " + e.getMessage(), e);
+        }
+    }
+
+
+    private static boolean isCompressed(byte[] binaryDoc) {
+        return binaryDoc.length >= 2
+                && (binaryDoc[0] & 0xff) == (GZIPInputStream.GZIP_MAGIC & 0xff)
+                && (binaryDoc[1] & 0xff) == ((GZIPInputStream.GZIP_MAGIC >> 8) & 0xff);
+    }
+
+
+    /**
+     * Fails reading the stream past the max number of bytes, so that the compressed documents
+     * cannot be expanded without limits.
+     */
+    private static class LimitedInputStream extends FilterInputStream {
+        private final long maxBytes;
+        private long count;
+
+        LimitedInputStream(InputStream in, long maxBytes) {
+            super(in);
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count(skipped);
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void count(long n) throws IOException {
+            count += n;
+            if (count > maxBytes) {
+                throw new IOException("Decompressed binary document exceeds the max size: " + maxBytes + " bytes");
+            }
+        }
+    }
+}
@@ -7,6 +7,8 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
 
 import nlp.common.model.annotation.GenericAnnotation;
 import org.slf4j.Logger;
@@ -15,6 +17,8 @@ import gate.Document;
 import gate.AnnotationSet;
 import gate.Annotation;
 import gate.FeatureMap;
+import gate.Factory;
+import gate.util.InvalidOffsetException;
 
 
 /**
@@ -26,7 +30,18 @@ public class GateUtils {
      * Used to handle annotation sets filtering
      */
     private static final String GATE_DEFAULT_ANNOTATION_SET_NAME = "";
-    private static final String FILTER_MATCH_ANY = "*";
+    private static final String FILTER_MATCH_ANY = AnnotationFilterPlan.FILTER_MATCH_ANY;
+
+    /**
+     * The attributes of the input annotations which are not set as the GATE annotation features.
+     */
+    private static final Set<String> INPUT_ANNOTATION_ATTRIBUTES = Set.of(
+            "type", "start_idx", "end_idx", "set", "id", "start_node_id", "end_node_id", "text");
+
+    /**
+     * The maximum number of the compiled filter plans to be cached.
+     */
+    private static final int FILTER_PLAN_CACHE_MAX_ENTRIES = 256;
 
     private static Logger log = LoggerFactory.getLogger(GateUtils.class);
 
@@ -35,6 +50,11 @@ public class GateUtils {
      */
     private boolean includeAtomicNodeIds;
 
+    /**
+     * The compiled filter plans, by the filter string.
+     */
+    private final Map<String, AnnotationFilterPlan> filterPlanCache = new ConcurrentHashMap<>();
+
 
     public GateUtils(boolean includeAtomicNodeIds) {
         this.includeAtomicNodeIds = includeAtomicNodeIds;
@@ -44,18 +64,7 @@ public class GateUtils {
      * Extracts ALL annotations from the GATE document.
      */
     public List<GenericAnnotation> getAtomicAnnotations(Document gateDoc) {
-        List<GenericAnnotation> atomicAnns = new ArrayList<>();
-
-        // get the default annotation set -- all if filters are not specified
-        AnnotationSet defaultSet = gateDoc.getAnnotations(GATE_DEFAULT_ANNOTATION_SET_NAME);
-        defaultSet.forEach(ann -> atomicAnns.add(toAtomicAnnotation(ann, GATE_DEFAULT_ANNOTATION_SET_NAME)));
-
-        // get all the annotation sets
-        gateDoc.getAnnotationSetNames().forEach(setName ->
-                gateDoc.getAnnotations(setName).forEach(ann ->
-                        atomicAnns.add(toAtomicAnnotation(ann, setName))));
-
-        return atomicAnns;
+        return getAtomicAnnotations(gateDoc, AnnotationFilterPlan.MATCH_ALL);
     }
 
     /**
@@ -63,64 +72,131 @@ public class GateUtils {
      */
     public List<GenericAnnotation> getAtomicAnnotations(Document gateDoc,
                                                         Map<String, Set<String>> annotationTypesSets) {
+        return getAtomicAnnotations(gateDoc, AnnotationFilterPlan.compile(annotationTypesSets));
+    }
+
+    /**
+     * Extracts annotations from the GATE document according to the compiled filter plan.
+     */
+    public List<GenericAnnotation> getAtomicAnnotations(Document gateDoc, AnnotationFilterPlan filterPlan) {
         List<GenericAnnotation> atomicAnns = new ArrayList<>();
+        forEachAnnotation(gateDoc, filterPlan, (annotation, setName) ->
+                atomicAnns.add(toAtomicAnnotation(annotation, setName, includeAtomicNodeIds)));
+        return atomicAnns;
+    }
 
-        // get all types without the ann set names: *:type
-        //
-        if (annotationTypesSets.containsKey(FILTER_MATCH_ANY)) {
-            // need to filter the '*' for compatibility with GATE
-            Set<String> typeNames = new HashSet<>(annotationTypesSets.get(FILTER_MATCH_ANY));
-            typeNames.remove(FILTER_MATCH_ANY);
-
-            // go through the default set
-            // TODO: or shall it be specially handled ???
-            AnnotationSet defaultSet = gateDoc.getAnnotations(GATE_DEFAULT_ANNOTATION_SET_NAME);
-            defaultSet.get(typeNames)
-                    .forEach(annotation -> atomicAnns.add(toAtomicAnnotation(annotation, GATE_DEFAULT_ANNOTATION_SET_NAME)));
-
-            // go though the named annotation sets
-            gateDoc.getAnnotationSetNames()
-                    .forEach(setName -> gateDoc.getAnnotations(setName).get(typeNames)
-                            .forEach(annotation -> atomicAnns.add(toAtomicAnnotation(annotation, GATE_DEFAULT_ANNOTATION_SET_NAME)))
-                    );
-
-            // remove the MATCH_ANY filter and continue with the remaining filters
-            annotationTypesSets.remove(FILTER_MATCH_ANY);
-        }
+    /**
+     * Collects the annotations from the GATE document according to the compiled filter plan,
+     * without converting them. These are converted only when accessed or written to JSON.
+     * The document text needs to be provided only if the annotation text is to be included.
+     */
+    public GateAnnotationList getAnnotationList(Document gateDoc, AnnotationFilterPlan filterPlan, String text) {
+        GateAnnotationList annotations = new GateAnnotationList(text, includeAtomicNodeIds);
+        forEachAnnotation(gateDoc, filterPlan, annotations::addAnnotation);
+        return annotations;
+    }
+
+    /**
+     * Goes through the annotations from the GATE document matching the compiled filter plan.
+     */
+    private void forEachAnnotation(Document gateDoc, AnnotationFilterPlan filterPlan,
+                                   BiConsumer<Annotation, String> consumer) {
 
-        // get all named sets: set:type and set:*
+        // go through the default set
         //
-        Map<String, Set<String>> remainingSets = new HashMap<>(annotationTypesSets);
-        remainingSets.remove(FILTER_MATCH_ANY);
+        forEachAnnotation(gateDoc.getAnnotations(GATE_DEFAULT_ANNOTATION_SET_NAME),
+                GATE_DEFAULT_ANNOTATION_SET_NAME, filterPlan.getTypes(GATE_DEFAULT_ANNOTATION_SET_NAME), consumer);
 
-        for (Map.Entry<String, Set<String>> pair : remainingSets.entrySet()) {
-            // need to filter the '*' for compatibility with GATE
-            Set<String> typeNames = new HashSet<>(pair.getValue());
-            typeNames.remove(FILTER_MATCH_ANY);
+        // go through the named sets: all of them in case of *:type, otherwise only the ones requested
+        //
+        Set<String> setNames = gateDoc.getAnnotationSetNames();
+        if (filterPlan.isMatchAnySet()) {
+            for (String setName : setNames) {
+                forEachAnnotation(gateDoc.getAnnotations(setName), setName, filterPlan.getTypes(setName), consumer);
+            }
+        } else {
+            for (Map.Entry<String, Set<String>> entry : filterPlan.getSetTypes().entrySet()) {
+                // need to check the set exists, as GATE would create an empty one otherwise
+                if (entry.getKey().equals(GATE_DEFAULT_ANNOTATION_SET_NAME) || !setNames.contains(entry.getKey()))
+                    continue;
 
-            if (typeNames.size() == 0) {
-                gateDoc.getAnnotations(pair.getKey())
-                        .forEach(annotation -> atomicAnns.add(toAtomicAnnotation(annotation, pair.getKey())));
-            } else {
-                gateDoc.getAnnotations(pair.getKey())
-                        .get(typeNames)
-                        .forEach(annotation -> atomicAnns.add(toAtomicAnnotation(annotation, pair.getKey())));
+                forEachAnnotation(gateDoc.getAnnotations(entry.getKey()), entry.getKey(), entry.getValue(), consumer);
             }
         }
+    }
 
-        return atomicAnns;
+    /**
+     * Goes through the annotations of the specified types from the annotation set.
+     */
+    private void forEachAnnotation(AnnotationSet annSet, String setName, Set<String> typeNames,
+                                   BiConsumer<Annotation, String> consumer) {
+        if (AnnotationFilterPlan.isAllTypes(typeNames)) {
+            annSet.forEach(annotation -> consumer.accept(annotation, setName));
+            return;
+        }
+
+        // use the per-type index of the set instead of merging the types into a new set
+        for (String typeName : typeNames) {
+            annSet.get(typeName).forEach(annotation -> consumer.accept(annotation, setName));
+        }
+    }
+
+    /**
+     * Adds the annotations (e.g. coming from the previous processing steps) to the GATE document,
+     * into the annotation sets as specified by "set" attribute (the default set if not specified).
+     * The remaining attributes are set as the annotation features, the annotation ids are assigned by GATE.
+     * The annotations without the type or with invalid offsets are skipped.
+     * Returns the number of annotations added.
+     */
+    public int addAnnotations(Document gateDoc, List<GenericAnnotation> annotations) {
+        int added = 0;
+        for (GenericAnnotation ann : annotations) {
+            Object type = ann.getAttributes().get("type");
+            Object startIdx = ann.getAttributes().get("start_idx");
+            Object endIdx = ann.getAttributes().get("end_idx");
+            if (type == null || !(startIdx instanceof Number) || !(endIdx instanceof Number)) {
+                log.warn("Invalid input annotation specified: " + ann.getAttributes() + ". Skipping...");
+                continue;
+            }
+
+            Object setName = ann.getAttributes().get("set");
+            AnnotationSet annSet = gateDoc.getAnnotations(setName != null
+                    ? setName.toString() : GATE_DEFAULT_ANNOTATION_SET_NAME);
+
+            FeatureMap features = Factory.newFeatureMap();
+            ann.getAttributes().forEach((name, value) -> {
+                if (!INPUT_ANNOTATION_ATTRIBUTES.contains(name))
+                    features.put(name, value);
+            });
+
+            try {
+                annSet.add(((Number) startIdx).longValue(), ((Number) endIdx).longValue(), type.toString(), features);
+                ++added;
+            }
+            catch (InvalidOffsetException e) {
+                log.warn("Invalid input annotation offsets specified: " + e.getMessage() + ". Skipping...");
+            }
+        }
+        return added;
     }
 
     /**
      * Refines the annotations to include the text they refer to.
      */
     public void refineAtomicAnnotations(List<GenericAnnotation> atomicAnnotations, Document gateDoc) {
+        refineAtomicAnnotations(atomicAnnotations, getDocumentText(gateDoc));
+    }
+
+    /**
+     * Refines the annotations to include the text they refer to, sliced from the provided document text.
+     * The annotations listed directly from GATE include the text only when serialized (see getAnnotationList).
+     */
+    public void refineAtomicAnnotations(List<GenericAnnotation> atomicAnnotations, String text) {
         for (GenericAnnotation ann : atomicAnnotations) {
-            if (ann.getAttributes().containsKey("start_idx") && ann.getAttributes().containsKey("end_idx")) {
-                Long startIdx = (Long)ann.getAttributes().get("start_idx");
-                Long endIdx = (Long)ann.getAttributes().get("end_idx");
-                String text = gate.Utils.stringFor(gateDoc, startIdx, endIdx);
-                ann.setAttribute("text", text);
+            Object startIdx = ann.getAttributes().get("start_idx");
+            Object endIdx = ann.getAttributes().get("end_idx");
+            if (startIdx instanceof Number && endIdx instanceof Number) {
+                ann.setAttribute("text", text.substring(((Number) startIdx).intValue(), ((Number) endIdx).intValue()));
             }
         }
     }
@@ -128,7 +204,8 @@ public class GateUtils {
     /**
      * Converts from GATE annotation type.
      */
-    private GenericAnnotation toAtomicAnnotation(Annotation gateAnnotation, String setName) {
+    static GenericAnnotation toAtomicAnnotation(Annotation gateAnnotation, String setName,
+                                                boolean includeAtomicNodeIds) {
         GenericAnnotation atomicAnn = new GenericAnnotation();
 
         // TODO:
@@ -209,6 +286,26 @@ public class GateUtils {
         return annTypeSet;
     }
 
+    /**
+     * Returns the compiled filter plan for the provided parameter string.
+     * The plans are cached, as the same filters are usually specified over and over again.
+     */
+    public AnnotationFilterPlan getAnnotationFilterPlan(String filterByAnnotations) {
+        AnnotationFilterPlan filterPlan = filterPlanCache.get(filterByAnnotations);
+        if (filterPlan != null) {
+            return filterPlan;
+        }
+
+        filterPlan = AnnotationFilterPlan.compile(getAnnotationTypeSets(filterByAnnotations));
+
+        // keep the cache bounded in case of many different filters provided by the clients
+        if (filterPlanCache.size() >= FILTER_PLAN_CACHE_MAX_ENTRIES) {
+            filterPlanCache.clear();
+        }
+        filterPlanCache.put(filterByAnnotations, filterPlan);
+        return filterPlan;
+    }
+
     /**
      * Perform intersection between specified filters.
      */
@@ -9,16 +9,38 @@ package nlp.gate;
 //  for compatibility with SpringRunner which is based on Junit 4
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectOutputStream;
 import java.util.*;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import nlp.service.utils.TestUtils;
+import nlp.common.model.annotation.ColumnarAnnotations;
 import nlp.common.model.annotation.GenericAnnotation;
 import nlp.common.model.document.GenericDocument;
 import nlp.gate.processor.GateApplicationSetupParameters;
 import nlp.gate.processor.GateProcessor;
+import nlp.gate.processor.GateTaskScheduler;
+import nlp.service.processor.NlpProcessor;
+import nlp.service.processor.ProcessingRejectedException;
+import nlp.service.processor.ProcessingTimeoutException;
 
 
 /**
@@ -120,6 +142,287 @@ public class GateProcessorTests {
     }
 
 
+    /**
+     * Test the filtering of annotations by the annotation sets and types
+     */
+    @Test
+    public void processExampleShortDocumentFiltered() throws Exception {
+        GateApplicationSetupParameters params = createDefaultApplicationParameters();
+        GateProcessor gateProcessor = new GateProcessor(params);
+        List<GenericAnnotation> allAnnotations = gateProcessor
+                .processDocument(TestUtils.createShortDocument(), Collections.emptyMap()).getAnnotations();
+
+        // all annotations should be returned when using *:*
+        params = createDefaultApplicationParameters();
+        params.setAnnotationSets("*:*");
+        gateProcessor = new GateProcessor(params);
+        List<GenericAnnotation> annotations = gateProcessor
+                .processDocument(TestUtils.createShortDocument(), Collections.emptyMap()).getAnnotations();
+        assertEquals(allAnnotations.size(), annotations.size());
+
+        // only the tokens from the default set should be returned
+        params = createDefaultApplicationParameters();
+        params.setAnnotationSets(":Token");
+        gateProcessor = new GateProcessor(params);
+        annotations = gateProcessor
+                .processDocument(TestUtils.createShortDocument(), Collections.emptyMap()).getAnnotations();
+        assertNotEquals(0, annotations.size());
+        for (GenericAnnotation ann : annotations) {
+            assertEquals("Token", ann.getAttributes().get("type"));
+            assertEquals("", ann.getAttributes().get("set"));
+        }
+    }
+
+
+    /**
+     * Test the filtering of annotations requested by the client, restricted to the available annotation sets
+     */
+    @Test
+    public void processExampleShortDocumentRequestFiltered() throws Exception {
+        GateApplicationSetupParameters params = createDefaultApplicationParameters();
+        GateProcessor gateProcessor = new GateProcessor(params);
+
+        Map<String, String> runtimeParams = Map.of(GateProcessor.ANNOTATION_SETS_PARAM, "*:Drug");
+        List<GenericAnnotation> annotations = gateProcessor
+                .processDocument(TestUtils.createShortDocument(), runtimeParams).getAnnotations();
+        assertEquals(1, annotations.size());
+        assertEquals("Drug", annotations.get(0).getAttributes().get("type"));
+
+        // the annotations not available in the application configuration should not be returned
+        gateProcessor = new GateProcessor(createApplicationParametersDrugNames());
+        runtimeParams = Map.of(GateProcessor.ANNOTATION_SETS_PARAM, ":Token, :Drug");
+        annotations = gateProcessor
+                .processDocument(TestUtils.createShortDocument(), runtimeParams).getAnnotations();
+        assertEquals(1, annotations.size());
+        assertEquals("Drug", annotations.get(0).getAttributes().get("type"));
+
+        runtimeParams = Map.of(GateProcessor.ANNOTATION_SETS_PARAM, ":Token");
+        annotations = gateProcessor
+                .processDocument(TestUtils.createShortDocument(), runtimeParams).getAnnotations();
+        assertEquals(0, annotations.size());
+    }
+
+
+    /**
+     * Process the document leaving out the document text, with the annotation text taken from the input text
+     */
+    @Test
+    public void processExampleShortDocumentWithoutText() throws Exception {
+        GateApplicationSetupParameters params = createApplicationParametersDrugNames();
+        params.setIncludeAnotationText(true);
+        GateProcessor gateProcessor = new GateProcessor(params);
+
+        GenericDocument inDoc = TestUtils.createShortDocument();
+        GenericDocument outDoc = gateProcessor.processDocument(inDoc,
+                Map.of(GateProcessor.INCLUDE_TEXT_PARAM, "false"));
+
+        assertNull(outDoc.getText());
+        assertEquals(1, outDoc.getAnnotations().size());
+
+        GenericAnnotation ann = outDoc.getAnnotations().get(0);
+        int startIdx = ((Number) ann.getAttributes().get("start_idx")).intValue();
+        int endIdx = ((Number) ann.getAttributes().get("end_idx")).intValue();
+        assertEquals(inDoc.getText().substring(startIdx, endIdx), ann.getAttributes().get("text"));
+
+        // the text is included by default
+        outDoc = gateProcessor.processDocument(inDoc, Collections.emptyMap());
+        assertEquals(inDoc.getText(), outDoc.getText());
+    }
+
+
+    /**
+     * Process the document with the input annotations coming from the previous processing step,
+     * skipping the processing resources which outputs are already present
+     */
+    @Test
+    public void processExampleShortDocumentWithInputAnnotations() throws Exception {
+        GateApplicationSetupParameters params = createDefaultApplicationParameters();
+        params.getSkippableResources().put("Document Reset PR", ":Token");
+        params.getSkippableResources().put("ANNIE English Tokeniser", ":Token, :SpaceToken");
+        params.getSkippableResources().put("ANNIE Sentence Splitter", ":Sentence");
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        GateProcessor gateProcessor = new GateProcessor(params, meterRegistry);
+
+        // the tokens and sentences produced by the first step are used as the input annotations
+        Map<String, String> runtimeParams = Map.of(GateProcessor.ANNOTATION_SETS_PARAM,
+                ":Token, :SpaceToken, :Sentence, :Drug");
+        GenericDocument firstDoc = gateProcessor.processDocument(TestUtils.createShortDocument(), runtimeParams);
+        List<GenericAnnotation> inputAnnotations = new ArrayList<>();
+        for (GenericAnnotation ann : firstDoc.getAnnotations()) {
+            if (!ann.getAttributes().get("type").equals("Drug")) {
+                inputAnnotations.add(ann);
+            }
+        }
+        assertEquals(0, meterRegistry.get("gate.resources.skipped")
+                .tag("resource", "ANNIE English Tokeniser").counter().count(), 0.0);
+
+        GenericDocument inDoc = TestUtils.createShortDocument();
+        inDoc.setAnnotations(inputAnnotations);
+        GenericDocument secondDoc = gateProcessor.processDocument(inDoc, runtimeParams);
+
+        // the input annotations should be kept without being produced again
+        assertEquals(getAnnotationSpans(firstDoc.getAnnotations()), getAnnotationSpans(secondDoc.getAnnotations()));
+        assertEquals(1, meterRegistry.get("gate.resources.skipped")
+                .tag("resource", "ANNIE English Tokeniser").counter().count(), 0.0);
+        assertEquals(1, meterRegistry.get("gate.resources.skipped")
+                .tag("resource", "ANNIE Sentence Splitter").counter().count(), 0.0);
+    }
+
+
+    /**
+     * Process the document restored from the binary document returned by the previous processing step
+     */
+    @Test
+    public void processExampleShortDocumentBinary() throws Exception {
+        GateApplicationSetupParameters params = createApplicationParametersDrugNames();
+        params.setBinaryDocumentInput(true);
+        GateProcessor gateProcessor = new GateProcessor(params);
+
+        GenericDocument plainDoc = gateProcessor.processDocument(TestUtils.createACMDocument(),
+                Map.of(GateProcessor.BINARY_DOCUMENT_PARAM, GateProcessor.BINARY_DOCUMENT_PLAIN));
+        GenericDocument compressedDoc = gateProcessor.processDocument(TestUtils.createACMDocument(),
+                Map.of(GateProcessor.BINARY_DOCUMENT_PARAM, GateProcessor.BINARY_DOCUMENT_COMPRESSED));
+        assertNotEquals(0, plainDoc.getBinaryDocument().length);
+        assertTrue(compressedDoc.getBinaryDocument().length < plainDoc.getBinaryDocument().length);
+
+        // the restored document should be processed the same as the one created from the text
+        GenericDocument inDoc = TestUtils.createACMDocument();
+        inDoc.setBinaryDocument(compressedDoc.getBinaryDocument());
+        GenericDocument outDoc = gateProcessor.processDocument(inDoc, Collections.emptyMap());
+
+        assertEquals(plainDoc.getText(), outDoc.getText());
+        assertEquals(getAnnotationSpans(plainDoc.getAnnotations()), getAnnotationSpans(outDoc.getAnnotations()));
+
+        // the binary document is not returned when not requested
+        assertNull(outDoc.getBinaryDocument());
+    }
+
+
+    /**
+     * Process the binary document containing the classes not allowed to be deserialized
+     */
+    @Test(expected = InvalidClassException.class)
+    public void processInvalidBinaryDocument() throws Exception {
+        GateApplicationSetupParameters params = createApplicationParametersDrugNames();
+        params.setBinaryDocumentInput(true);
+        GateProcessor gateProcessor = new GateProcessor(params);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(new File("document.xml"));
+        }
+
+        GenericDocument inDoc = TestUtils.createShortDocument();
+        inDoc.setBinaryDocument(bytes.toByteArray());
+        gateProcessor.processDocument(inDoc, Collections.emptyMap());
+    }
+
+
+    /**
+     * Process the binary document containing deeply nested collections, which could exhaust the CPU or memory
+     */
+    @Test(expected = InvalidClassException.class)
+    public void processNestedCollectionsBinaryDocument() throws Exception {
+        GateApplicationSetupParameters params = createApplicationParametersDrugNames();
+        params.setBinaryDocumentInput(true);
+        GateProcessor gateProcessor = new GateProcessor(params);
+
+        Set<Object> root = new HashSet<>();
+        Set<Object> s1 = root;
+        Set<Object> s2 = new HashSet<>();
+        for (int i = 0; i < 100; ++i) {
+            Set<Object> t1 = new HashSet<>();
+            Set<Object> t2 = new HashSet<>();
+            t1.add("foo");
+            s1.add(t1);
+            s1.add(t2);
+            s2.add(t1);
+            s2.add(t2);
+            s1 = t1;
+            s2 = t2;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(root);
+        }
+
+        GenericDocument inDoc = TestUtils.createShortDocument();
+        inDoc.setBinaryDocument(bytes.toByteArray());
+        gateProcessor.processDocument(inDoc, Collections.emptyMap());
+    }
+
+
+    /**
+     * Process the document with the binary document ignored, as the binary input is not enabled
+     */
+    @Test
+    public void processShortDocumentBinaryInputDisabled() throws Exception {
+        GateApplicationSetupParameters params = createApplicationParametersDrugNames();
+        GateProcessor gateProcessor = new GateProcessor(params);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(new File("document.xml"));
+        }
+
+        GenericDocument inDoc = TestUtils.createShortDocument();
+        inDoc.setBinaryDocument(bytes.toByteArray());
+        GenericDocument outDoc = gateProcessor.processDocument(inDoc, Collections.emptyMap());
+        assertNotEquals(0, outDoc.getAnnotations().size());
+    }
+
+
+    /**
+     * Test that the annotations written directly from GATE are the same as the Generic Annotations
+     */
+    @Test
+    public void processExampleACMDocumentSerialized() throws Exception {
+        GateApplicationSetupParameters params = createDefaultApplicationParameters();
+        params.setIncludeAnotationText(true);
+        GateProcessor gateProcessor = new GateProcessor(params);
+
+        GenericDocument outDoc = gateProcessor.processDocument(TestUtils.createACMDocument(), Collections.emptyMap());
+        List<GenericAnnotation> annotations = outDoc.getAnnotations();
+        assertNotEquals(0, annotations.size());
+
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode streamedJson = mapper.readTree(mapper.writeValueAsBytes(annotations));
+        JsonNode genericJson = mapper.readTree(mapper.writeValueAsBytes(new ArrayList<>(annotations)));
+        assertEquals(genericJson, streamedJson);
+
+        // the annotation text should be included
+        GenericAnnotation ann = annotations.get(0);
+        String annText = TestUtils.createACMDocument().getText().substring(
+                ((Long) ann.getAttributes().get("start_idx")).intValue(),
+                ((Long) ann.getAttributes().get("end_idx")).intValue());
+        assertEquals(annText, ann.getAttributes().get("text"));
+    }
+
+
+    /**
+     * Test that the annotations encoded in the columnar format are decoded back the same
+     */
+    @Test
+    public void processExampleACMDocumentColumnar() throws Exception {
+        GateApplicationSetupParameters params = createDefaultApplicationParameters();
+        params.setIncludeAnotationText(true);
+        GateProcessor gateProcessor = new GateProcessor(params);
+
+        GenericDocument outDoc = gateProcessor.processDocument(TestUtils.createACMDocument(), Collections.emptyMap());
+        List<GenericAnnotation> annotations = outDoc.getAnnotations();
+
+        ObjectMapper mapper = new ObjectMapper();
+        ColumnarAnnotations columnar = mapper.readValue(
+                mapper.writeValueAsBytes(ColumnarAnnotations.encode(annotations)), ColumnarAnnotations.class);
+        assertEquals(annotations.size(), columnar.getSize());
+
+        JsonNode decodedJson = mapper.readTree(mapper.writeValueAsBytes(columnar.toAnnotations()));
+        JsonNode genericJson = mapper.readTree(mapper.writeValueAsBytes(new ArrayList<>(annotations)));
+        assertEquals(genericJson, decodedJson);
+    }
+
+
     /**
      * Process empty or blank documents in bulk mode
      */
@@ -158,9 +461,497 @@ public class GateProcessorTests {
     }
 
 
+    /**
+     * Process valid documents in bulk mode using multiple GATE controllers in parallel
+     */
+    @Test
+    public void processExampleDocumentsBulkParallel() throws Exception {
+        GateApplicationSetupParameters params = createApplicationParametersDrugNames();
+        params.setGateControllersNum(3);
+        GateProcessor gateProcessor = new GateProcessor(params);
+
+        List<GenericDocument> inDocs = new ArrayList<>();
+        for (int i = 0; i < 4; ++i) {
+            inDocs.add(TestUtils.createShortDocument());
+            inDocs.add(TestUtils.createACMDocument());
+        }
+        inDocs.add(3, TestUtils.createDocument(" "));
+
+        List<GenericDocument> outDocs = gateProcessor.processDocumentsBulk(inDocs, Collections.emptyMap());
+
+        // the documents should be returned in the same order as provided
+        assertEquals(inDocs.size(), outDocs.size());
+        for (int i = 0; i < inDocs.size(); ++i) {
+            if (i == 3) {
+                assertEquals(0, outDocs.get(i).getAnnotations().size());
+            } else {
+                assertEquals(inDocs.get(i).getText(), outDocs.get(i).getText());
+                assertNotEquals(0, outDocs.get(i).getAnnotations().size());
+            }
+        }
+    }
+
+
+    /**
+     * Process valid documents without blocking the submitting thread, both single and in bulk mode
+     */
+    @Test
+    public void processExampleDocumentsAsync() throws Exception {
+        GateApplicationSetupParameters params = createApplicationParametersDrugNames();
+        params.setGateControllersNum(2);
+        GateProcessor gateProcessor = new GateProcessor(params);
+
+        List<GenericDocument> inDocs = new ArrayList<>();
+        for (int i = 0; i < 3; ++i) {
+            inDocs.add(TestUtils.createShortDocument());
+            inDocs.add(TestUtils.createACMDocument());
+        }
+
+        CompletableFuture<GenericDocument> outDoc = gateProcessor.processDocumentAsync(TestUtils.createShortDocument(),
+                Collections.emptyMap());
+        CompletableFuture<List<GenericDocument>> outDocs = gateProcessor.processDocumentsBulkAsync(inDocs,
+                Collections.emptyMap());
+
+        assertNotEquals(0, outDoc.get().getAnnotations().size());
+        assertEquals(inDocs.size(), outDocs.get().size());
+        for (int i = 0; i < inDocs.size(); ++i) {
+            assertEquals(inDocs.get(i).getText(), outDocs.get().get(i).getText());
+            assertNotEquals(0, outDocs.get().get(i).getAnnotations().size());
+        }
+        assertEquals(0, gateProcessor.getStatistics().get("inflight"));
+    }
+
+
+    /**
+     * Process a long document split into chunks processed in parallel, which should produce the same annotations
+     */
+    @Test
+    public void processExampleLongDocumentChunked() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 10; ++i) {
+            text.append(TestUtils.getExampleLongText()).append(i % 3 == 0 ? "\n\n" : " ");
+        }
+        GenericDocument inDoc = TestUtils.createDocument(text.toString());
+
+        GateProcessor gateProcessor = new GateProcessor(createApplicationParametersDrugNames());
+        GenericDocument expectedDoc = gateProcessor.processDocument(inDoc, Collections.emptyMap());
+
+        GateApplicationSetupParameters params = createApplicationParametersDrugNames();
+        params.setGateControllersNum(3);
+        params.setChunkMaxChars(600);
+        params.setChunkOverlapChars(100);
+        GateProcessor chunkingProcessor = new GateProcessor(params);
+        GenericDocument outDoc = chunkingProcessor.processDocument(inDoc, Collections.emptyMap());
+
+        assertEquals(inDoc.getText(), outDoc.getText());
+        assertEquals(getAnnotationSpans(expectedDoc.getAnnotations()), getAnnotationSpans(outDoc.getAnnotations()));
+
+        Set<Object> ids = new HashSet<>();
+        for (GenericAnnotation ann : outDoc.getAnnotations()) {
+            assertTrue(ids.add(ann.getAttributes().get("id")));
+        }
+    }
+
+
+    /**
+     * Process valid documents of different lengths in bulk mode, packed into sub-batches by the number
+     * of characters and scheduled by the length
+     */
+    @Test
+    public void processExampleDocumentsBulkSizeAware() throws Exception {
+        GateApplicationSetupParameters params = createApplicationParametersDrugNames();
+        params.setGateControllersNum(2);
+        params.setBatchMaxChars(1000);
+        params.setSchedulingAgingCharsPerMs(100);
+        GateProcessor gateProcessor = new GateProcessor(params);
+
+        List<GenericDocument> inDocs = new ArrayList<>();
+        for (int i = 0; i < 5; ++i) {
+            inDocs.add(TestUtils.createShortDocument());
+            inDocs.add(TestUtils.createDocument(String.join(" ", Collections.nCopies(i + 1, TestUtils.getExampleLongText()))));
+        }
+
+        CompletableFuture<GenericDocument> outDoc = gateProcessor.processDocumentAsync(TestUtils.createShortDocument(),
+                Collections.emptyMap());
+        List<GenericDocument> outDocs = gateProcessor.processDocumentsBulk(inDocs, Collections.emptyMap());
+
+        // the documents should be returned in the same order as provided
+        assertEquals(inDocs.size(), outDocs.size());
+        for (int i = 0; i < inDocs.size(); ++i) {
+            assertEquals(inDocs.get(i).getText(), outDocs.get(i).getText());
+            assertNotEquals(0, outDocs.get(i).getAnnotations().size());
+        }
+        assertNotEquals(0, outDoc.get().getAnnotations().size());
+        assertEquals(0, gateProcessor.getStatistics().get("queued"));
+    }
+
+
+    /**
+     * Process valid documents within the request classes, with the controllers reserved for the interactive requests
+     */
+    @Test
+    public void processExampleDocumentsRequestClasses() throws Exception {
+        GateApplicationSetupParameters params = createApplicationParametersDrugNames();
+        params.setGateControllersNum(2);
+
+        GateApplicationSetupParameters.RequestClassParameters interactive = new GateApplicationSetupParameters.RequestClassParameters();
+        interactive.setReservedControllers(1);
+        GateApplicationSetupParameters.RequestClassParameters backfill = new GateApplicationSetupParameters.RequestClassParameters();
+        backfill.setMaxControllers(1);
+        params.getRequestClasses().put("interactive", interactive);
+        params.getRequestClasses().put("backfill", backfill);
+        params.setDefaultRequestClass("backfill");
+        GateProcessor gateProcessor = new GateProcessor(params);
+
+        List<GenericDocument> inDocs = new ArrayList<>();
+        for (int i = 0; i < 10; ++i) {
+            inDocs.add(TestUtils.createShortDocument());
+            inDocs.add(TestUtils.createACMDocument());
+        }
+
+        CompletableFuture<List<GenericDocument>> backfillDocs = gateProcessor.processDocumentsBulkAsync(inDocs,
+                Collections.singletonMap(NlpProcessor.REQUEST_CLASS_PARAM, "backfill"));
+        GenericDocument interactiveDoc = gateProcessor.processDocument(TestUtils.createShortDocument(),
+                Collections.singletonMap(NlpProcessor.REQUEST_CLASS_PARAM, "interactive"));
+        // the unknown classes fall back to the default one
+        GenericDocument unknownDoc = gateProcessor.processDocument(TestUtils.createShortDocument(),
+                Collections.singletonMap(NlpProcessor.REQUEST_CLASS_PARAM, "unknown"));
+
+        assertNotEquals(0, interactiveDoc.getAnnotations().size());
+        assertNotEquals(0, unknownDoc.getAnnotations().size());
+        List<GenericDocument> outDocs = backfillDocs.get();
+        assertEquals(inDocs.size(), outDocs.size());
+        for (int i = 0; i < inDocs.size(); ++i) {
+            assertEquals(inDocs.get(i).getText(), outDocs.get(i).getText());
+            assertNotEquals(0, outDocs.get(i).getAnnotations().size());
+        }
+
+        Map<String, Object> classesStats = (Map<String, Object>) gateProcessor.getStatistics().get("classes");
+        Map<String, Object> interactiveStats = (Map<String, Object>) classesStats.get("interactive");
+        Map<String, Object> backfillStats = (Map<String, Object>) classesStats.get("backfill");
+        assertEquals(1, interactiveStats.get("reserved"));
+        assertEquals(2, interactiveStats.get("max"));
+        assertEquals(0, backfillStats.get("reserved"));
+        assertEquals(1, backfillStats.get("max"));
+        assertEquals(0, gateProcessor.getStatistics().get("inflight"));
+    }
+
+
+    /**
+     * Run the tasks within the request classes, the interactive task should start on the reserved worker
+     * while the backfill lane is saturated and its queue not yet drained
+     */
+    @Test
+    public void scheduleInteractiveTaskBeforeBackfillQueueDrains() throws Exception {
+        GateApplicationSetupParameters.RequestClassParameters interactive = new GateApplicationSetupParameters.RequestClassParameters();
+        interactive.setReservedControllers(1);
+        GateApplicationSetupParameters.RequestClassParameters backfill = new GateApplicationSetupParameters.RequestClassParameters();
+        backfill.setMaxControllers(1);
+        Map<String, GateApplicationSetupParameters.RequestClassParameters> classesParams = new LinkedHashMap<>();
+        classesParams.put("interactive", interactive);
+        classesParams.put("backfill", backfill);
+        GateTaskScheduler scheduler = new GateTaskScheduler(2, 0, classesParams, "backfill", "TestScheduler");
+
+        // fill the backfill lane with the tasks blocked until released
+        //
+        int numBackfill = 5;
+        CountDownLatch backfillStarted = new CountDownLatch(1);
+        CountDownLatch backfillReleased = new CountDownLatch(1);
+        CountDownLatch backfillDone = new CountDownLatch(numBackfill);
+        for (int i = 0; i < numBackfill; ++i) {
+            scheduler.execute(() -> {
+                backfillStarted.countDown();
+                try {
+                    backfillReleased.await();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                backfillDone.countDown();
+            }, 1000, "backfill");
+        }
+        assertTrue(backfillStarted.await(10, TimeUnit.SECONDS));
+
+        CountDownLatch interactiveStarted = new CountDownLatch(1);
+        scheduler.execute(interactiveStarted::countDown, 10, "interactive");
+        assertTrue(interactiveStarted.await(10, TimeUnit.SECONDS));
+
+        Map<String, Object> backfillStats = (Map<String, Object>) scheduler.getStatistics().get("backfill");
+        assertEquals(1, backfillStats.get("running"));
+        assertEquals(numBackfill - 1, backfillStats.get("queued"));
+
+        backfillReleased.countDown();
+        assertTrue(backfillDone.await(10, TimeUnit.SECONDS));
+        assertEquals(0, scheduler.getQueued());
+    }
+
+
+    /**
+     * Process valid documents in bulk mode, with the GATE controllers pool growing on demand
+     */
+    @Test
+    public void processExampleDocumentsBulkElastic() throws Exception {
+        GateApplicationSetupParameters params = createApplicationParametersDrugNames();
+        params.setGateControllersNum(1);
+        params.setGateControllersMaxNum(3);
+        params.setGateControllersGrowWaitMs(1);
+        GateProcessor gateProcessor = new GateProcessor(params);
+
+        List<GenericDocument> inDocs = new ArrayList<>();
+        for (int i = 0; i < 10; ++i) {
+            inDocs.add(TestUtils.createShortDocument());
+            inDocs.add(TestUtils.createACMDocument());
+        }
+
+        List<GenericDocument> outDocs = gateProcessor.processDocumentsBulk(inDocs, Collections.emptyMap());
+
+        assertEquals(inDocs.size(), outDocs.size());
+        for (int i = 0; i < inDocs.size(); ++i) {
+            assertEquals(inDocs.get(i).getText(), outDocs.get(i).getText());
+            assertNotEquals(0, outDocs.get(i).getAnnotations().size());
+        }
+
+        // the pool should stay within its bounds
+        Map<String, Object> poolStats = (Map<String, Object>) gateProcessor.getStatistics().get("controllers");
+        assertTrue((Integer) poolStats.get("size") >= 1);
+        assertTrue((Integer) poolStats.get("size") <= 3);
+    }
+
+
+    /**
+     * Process valid single documents concurrently, collected into batches
+     */
+    @Test
+    public void processExampleDocumentsBatched() throws Exception {
+        GateApplicationSetupParameters params = createApplicationParametersDrugNames();
+        params.setGateControllersNum(2);
+        params.setBatchWindowMs(20);
+        params.setBatchMaxDocuments(4);
+        GateProcessor gateProcessor = new GateProcessor(params);
+
+        List<GenericDocument> inDocs = new ArrayList<>();
+        for (int i = 0; i < 5; ++i) {
+            inDocs.add(TestUtils.createShortDocument());
+            inDocs.add(TestUtils.createACMDocument());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(inDocs.size());
+        List<Future<GenericDocument>> outDocs = new ArrayList<>();
+        for (GenericDocument doc : inDocs) {
+            outDocs.add(executor.submit(() -> gateProcessor.processDocument(doc, Collections.emptyMap())));
+        }
+
+        // each caller should receive its own document
+        for (int i = 0; i < inDocs.size(); ++i) {
+            GenericDocument outDoc = outDocs.get(i).get();
+            assertEquals(inDocs.get(i).getText(), outDoc.getText());
+            assertNotEquals(0, outDoc.getAnnotations().size());
+        }
+        executor.shutdown();
+    }
+
+
+    /**
+     * Start processing once the first controller is available, with the remaining ones created in the background
+     */
+    @Test
+    public void processExampleDocumentsBulkReadyEarly() throws Exception {
+        GateApplicationSetupParameters params = createApplicationParametersDrugNames();
+        params.setGateControllersNum(3);
+        params.setGateControllersReadyNum(1);
+        GateProcessor gateProcessor = new GateProcessor(params);
+        assertTrue(gateProcessor.isReady());
+
+        List<GenericDocument> inDocs = new ArrayList<>();
+        inDocs.add(TestUtils.createACMDocument());
+        inDocs.add(TestUtils.createShortDocument());
+        List<GenericDocument> outDocs = gateProcessor.processDocumentsBulk(inDocs, Collections.emptyMap());
+        assertNotEquals(0, outDocs.get(0).getAnnotations().size());
+        assertNotEquals(0, outDocs.get(1).getAnnotations().size());
+
+        Map<String, Object> poolStats = (Map<String, Object>) gateProcessor.getStatistics().get("controllers");
+        for (int i = 0; i < 100 && !poolStats.get("idle").equals(3); ++i) {
+            Thread.sleep(100);
+            poolStats = (Map<String, Object>) gateProcessor.getStatistics().get("controllers");
+        }
+        assertEquals(3, poolStats.get("size"));
+        assertEquals(3, poolStats.get("idle"));
+    }
+
+
+    /**
+     * Warm up each controller using the bundled sample document before processing
+     */
+    @Test
+    public void processExampleShortDocumentWarmedUp() throws Exception {
+        GateApplicationSetupParameters params = createApplicationParametersDrugNames();
+        params.setGateControllersNum(2);
+        params.setWarmupMaxIterations(3);
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        GateProcessor gateProcessor = new GateProcessor(params, meterRegistry);
+
+        assertTrue(gateProcessor.isReady());
+        assertEquals(2, meterRegistry.get("gate.controllers.warmup").timer().count());
+
+        GenericDocument outDoc = gateProcessor.processDocument(TestUtils.createShortDocument(), Collections.emptyMap());
+        assertNotEquals(0, outDoc.getAnnotations().size());
+    }
+
+
+    /**
+     * Process the same documents again, with the results taken from the cache
+     */
+    @Test
+    public void processExampleDocumentsCached() throws Exception {
+        GateApplicationSetupParameters params = createApplicationParametersDrugNames();
+        params.setCacheMaxEntries(10);
+        GateProcessor gateProcessor = new GateProcessor(params);
+
+        GenericDocument outDoc = gateProcessor.processDocument(TestUtils.createShortDocument(), Collections.emptyMap());
+        GenericDocument cachedDoc = gateProcessor.processDocument(TestUtils.createShortDocument(), Collections.emptyMap());
+        assertEquals(outDoc.getAnnotations().size(), cachedDoc.getAnnotations().size());
+
+        List<GenericDocument> inDocs = new ArrayList<>();
+        inDocs.add(TestUtils.createACMDocument());
+        inDocs.add(TestUtils.createShortDocument());
+        List<GenericDocument> outDocs = gateProcessor.processDocumentsBulk(inDocs, Collections.emptyMap());
+        assertEquals(outDoc.getAnnotations().size(), outDocs.get(1).getAnnotations().size());
+
+        Map<String, Object> cacheStats = (Map<String, Object>) gateProcessor.getStatistics().get("cache");
+        assertEquals(2L, cacheStats.get("hits"));
+        assertEquals(2L, cacheStats.get("misses"));
+    }
+
+
+    /**
+     * Process the same document again, with each cached result returned as a separate copy
+     */
+    @Test
+    public void processExampleDocumentsCachedCopies() throws Exception {
+        GateApplicationSetupParameters params = createApplicationParametersDrugNames();
+        params.setCacheMaxEntries(10);
+        GateProcessor gateProcessor = new GateProcessor(params);
+
+        GenericDocument outDoc = gateProcessor.processDocument(TestUtils.createShortDocument(), Collections.emptyMap());
+        int annotationsCount = outDoc.getAnnotations().size();
+        assertNotEquals(0, annotationsCount);
+
+        GenericDocument cachedDoc = gateProcessor.processDocument(TestUtils.createShortDocument(), Collections.emptyMap());
+        assertNotSame(outDoc, cachedDoc);
+        assertEquals(annotationsCount, cachedDoc.getAnnotations().size());
+
+        // the offsets and ids are of the same types as in the freshly processed document
+        //
+        Map<String, Object> outAttributes = outDoc.getAnnotations().get(0).getAttributes();
+        Map<String, Object> cachedAttributes = cachedDoc.getAnnotations().get(0).getAttributes();
+        assertEquals(outAttributes.get("start_idx"), cachedAttributes.get("start_idx"));
+        assertEquals(outAttributes.get("end_idx"), cachedAttributes.get("end_idx"));
+        assertEquals(outAttributes.get("id"), cachedAttributes.get("id"));
+
+        // the changes made by one of the callers are not visible to the others
+        //
+        cachedDoc.getAnnotations().clear();
+        GenericDocument cachedAgainDoc = gateProcessor.processDocument(TestUtils.createShortDocument(), Collections.emptyMap());
+        assertEquals(annotationsCount, cachedAgainDoc.getAnnotations().size());
+    }
+
+
+    /**
+     * Process the documents with the client deadline, rejecting these when the deadline has passed
+     */
+    @Test
+    public void processExampleDocumentWithinDeadline() throws Exception {
+        GateApplicationSetupParameters params = createApplicationParametersDrugNames();
+        params.setAdmissionMaxQueued(2);
+        params.setAdmissionMaxWaitMs(60000);
+        GateProcessor gateProcessor = new GateProcessor(params);
+
+        Map<String, String> runtimeParams = new HashMap<>();
+        runtimeParams.put(NlpProcessor.DEADLINE_PARAM, Long.toString(System.currentTimeMillis() + 60000));
+
+        GenericDocument outDoc = gateProcessor.processDocument(TestUtils.createShortDocument(), runtimeParams);
+        assertNotEquals(0, outDoc.getAnnotations().size());
+        assertEquals(0, gateProcessor.getStatistics().get("inflight"));
+    }
+
+
+    @Test(expected = ProcessingRejectedException.class)
+    public void processExampleDocumentsPastDeadline() throws Exception {
+        GateApplicationSetupParameters params = createApplicationParametersDrugNames();
+        GateProcessor gateProcessor = new GateProcessor(params);
+
+        Map<String, String> runtimeParams = new HashMap<>();
+        runtimeParams.put(NlpProcessor.DEADLINE_PARAM, Long.toString(System.currentTimeMillis() - 1000));
+
+        List<GenericDocument> inDocs = new ArrayList<>();
+        inDocs.add(TestUtils.createShortDocument());
+        gateProcessor.processDocumentsBulk(inDocs, runtimeParams);
+    }
+
+
+    /**
+     * Process a large document with a very short execution timeout, the interrupted controller should be
+     * either recovered or replaced, keeping the pool capacity for the following requests
+     */
+    @Test
+    public void processExampleDocumentsTimeout() throws Exception {
+        GateApplicationSetupParameters params = createApplicationParametersDrugNames();
+        params.setDocumentTimeoutMs(1);
+        GateProcessor gateProcessor = new GateProcessor(params);
+
+        String text = TestUtils.createACMDocument().getText();
+        StringBuilder largeText = new StringBuilder();
+        for (int i = 0; i < 200; ++i) {
+            largeText.append(text).append("\n");
+        }
+        GenericDocument largeDoc = new GenericDocument();
+        largeDoc.setText(largeText.toString());
+
+        assertTrue(isTimedOut(gateProcessor, largeDoc));
+        Map<String, Object> poolStats = awaitIdleControllers(gateProcessor);
+        assertEquals(1L, poolStats.get("timeouts"));
+        assertEquals(params.getGateControllersNum(), poolStats.get("size"));
+        assertEquals(params.getGateControllersNum(), poolStats.get("idle"));
+
+        // the following requests are processed by the recovered or replaced controller
+        //
+        assertTrue(isTimedOut(gateProcessor, largeDoc));
+        poolStats = awaitIdleControllers(gateProcessor);
+        assertEquals(2L, poolStats.get("timeouts"));
+        assertEquals(params.getGateControllersNum(), poolStats.get("size"));
+        assertEquals(params.getGateControllersNum(), poolStats.get("idle"));
+
+        // the same document is processed without the timeout
+        //
+        GateApplicationSetupParameters noTimeoutParams = createApplicationParametersDrugNames();
+        GateProcessor noTimeoutGateProcessor = new GateProcessor(noTimeoutParams);
+        GenericDocument outDoc = noTimeoutGateProcessor.processDocument(largeDoc, Collections.emptyMap());
+        assertNotEquals(0, outDoc.getAnnotations().size());
+    }
+
+
     /**
      * Helper functions
      */
+    private boolean isTimedOut(GateProcessor gateProcessor, GenericDocument document) throws Exception {
+        try {
+            gateProcessor.processDocumentsBulk(List.of(document), Collections.emptyMap());
+        }
+        catch (ProcessingTimeoutException e) {
+            return true;
+        }
+        return false;
+    }
+
+    private Map<String, Object> awaitIdleControllers(GateProcessor gateProcessor) throws Exception {
+        Map<String, Object> poolStats = (Map<String, Object>) gateProcessor.getStatistics().get("controllers");
+        for (int i = 0; i < 100 && !poolStats.get("idle").equals(poolStats.get("size")); ++i) {
+            Thread.sleep(100);
+            poolStats = (Map<String, Object>) gateProcessor.getStatistics().get("controllers");
+        }
+        return poolStats;
+    }
+
     private GateApplicationSetupParameters createDefaultApplicationParameters() throws Exception {
         GateApplicationSetupParameters params = new GateApplicationSetupParameters();
         params.setGateAppPath(testConfig.getProperty("gateAppPath"));
@@ -176,5 +967,15 @@ public class GateProcessorTests {
 
         return params;
     }
+
+    private static List<String> getAnnotationSpans(List<GenericAnnotation> annotations) {
+        List<String> spans = new ArrayList<>();
+        for (GenericAnnotation ann : annotations) {
+            spans.add(ann.getAttributes().get("type") + ":" + ann.getAttributes().get("start_idx")
+                    + ":" + ann.getAttributes().get("end_idx"));
+        }
+        Collections.sort(spans);
+        return spans;
+    }
 }
 
@@ -4,8 +4,11 @@ import nlp.common.model.protocol.NlpInputPayload;
 import nlp.common.model.protocol.NlpProcessingResult;
 import nlp.service.config.ApplicationConfiguration;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 
 /**
@@ -41,4 +44,90 @@ public abstract class NlpService {
      */
     public abstract List<NlpProcessingResult> processBulk(List<NlpInputPayload> payloads,
                                                           Map<String, String> applicationParams) throws Exception;
+
+    /**
+     * Returns the names of the NLP applications run by the service, when it runs multiple ones.
+     * The NLP-app-specific classes can override it, together with the processing methods taking the application name.
+     */
+    public Collection<String> getApplications() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Performs NLP processing over the input payload using the named application,
+     * or the default one when the name is null.
+     */
+    public NlpProcessingResult process(String application,
+                                       NlpInputPayload payload,
+                                       Map<String, String> applicationParams) throws Exception {
+        if (application != null) {
+            throw new IllegalArgumentException("Unknown NLP application: " + application);
+        }
+        return process(payload, applicationParams);
+    }
+
+    /**
+     * Performs NLP processing over the input payloads using the named application,
+     * or the default one when the name is null.
+     */
+    public List<NlpProcessingResult> processBulk(String application,
+                                                 List<NlpInputPayload> payloads,
+                                                 Map<String, String> applicationParams) throws Exception {
+        if (application != null) {
+            throw new IllegalArgumentException("Unknown NLP application: " + application);
+        }
+        return processBulk(payloads, applicationParams);
+    }
+
+
+    /**
+     * Performs NLP processing over the input payload using the named application, or the default one
+     * when the name is null, without blocking the calling thread. The errors are reported through the returned future.
+     * By default the processing is run on the calling thread, the NLP-app-specific classes should override it
+     * to run the processing on their own executors.
+     */
+    public CompletableFuture<NlpProcessingResult> processAsync(String application,
+                                                               NlpInputPayload payload,
+                                                               Map<String, String> applicationParams) {
+        try {
+            return CompletableFuture.completedFuture(process(application, payload, applicationParams));
+        }
+        catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Performs NLP processing over the input payloads using the named application, or the default one
+     * when the name is null, without blocking the calling thread. The errors are reported through the returned future.
+     * By default the processing is run on the calling thread, the NLP-app-specific classes should override it
+     * to run the processing on their own executors.
+     */
+    public CompletableFuture<List<NlpProcessingResult>> processBulkAsync(String application,
+                                                                         List<NlpInputPayload> payloads,
+                                                                         Map<String, String> applicationParams) {
+        try {
+            return CompletableFuture.completedFuture(processBulk(application, payloads, applicationParams));
+        }
+        catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+
+    /**
+     * Returns the NLP processing statistics, such as the results cache usage.
+     * The NLP-app-specific classes can override it to provide their own statistics.
+     */
+    public Map<String, Object> getStatistics() {
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Checks whether the service is ready to process the documents.
+     * The NLP-app-specific classes can override it when the resources are initialized in the background.
+     */
+    public boolean isReady() {
+        return true;
+    }
 }
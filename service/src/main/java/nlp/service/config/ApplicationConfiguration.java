@@ -41,6 +41,48 @@ public class ApplicationConfiguration {
     boolean appSingleDocEndpointFailOnEmptyContent;
 
 
+    /**
+     * Whether the requests are handled by virtual threads (when supported by the JVM), instead of the server pool.
+     */
+    @Value("${endpoint.virtual-threads:false}")
+    @JsonProperty("virtual_threads")
+    @JsonView(JsonPropertyAccessView.Public.class)
+    boolean virtualThreadsEnabled;
+
+
+    /**
+     * Streaming endpoint configuration.
+     */
+    @Value("${endpoint.stream.max-in-flight:16}")
+    @JsonProperty("stream_max_in_flight")
+    @JsonView(JsonPropertyAccessView.Public.class)
+    int streamMaxInFlight;
+
+
+    /**
+     * Asynchronous processing jobs configuration.
+     */
+    @Value("${endpoint.jobs.max-queued:16}")
+    @JsonProperty("jobs_max_queued")
+    @JsonView(JsonPropertyAccessView.Public.class)
+    int jobsMaxQueued;
+
+    @Value("${endpoint.jobs.workers:1}")
+    @JsonProperty("jobs_workers")
+    @JsonView(JsonPropertyAccessView.Public.class)
+    int jobsWorkersNum;
+
+    @Value("${endpoint.jobs.chunk-size:100}")
+    @JsonProperty("jobs_chunk_size")
+    @JsonView(JsonPropertyAccessView.Public.class)
+    int jobsChunkSize;
+
+    @Value("${endpoint.jobs.retention-minutes:60}")
+    @JsonProperty("jobs_retention_minutes")
+    @JsonView(JsonPropertyAccessView.Public.class)
+    int jobsRetentionMinutes;
+
+
     /**
      * The application-specific parameters.
      */
@@ -0,0 +1,49 @@
+package nlp.service.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.msgpack.jackson.dataformat.MessagePackFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+
+/**
+ * Binary content formats supported by the NLP service endpoints, in addition to JSON.
+ * The format is selected by the client using the 'Content-Type' and 'Accept' headers.
+ */
+@Configuration
+public class ContentFormatsConfiguration {
+
+    public static final String CBOR_MEDIA_TYPE = "application/cbor";
+    public static final String SMILE_MEDIA_TYPE = "application/x-jackson-smile";
+    public static final String MSGPACK_MEDIA_TYPE = "application/x-msgpack";
+
+
+    /**
+     * The object mappers are created using the application builder (a new instance per each injection),
+     * to share the same modules and features as the JSON one.
+     */
+    @Bean
+    public TimedJackson2BinaryHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder,
+                                                                            MeterRegistry meterRegistry) {
+        return new TimedJackson2BinaryHttpMessageConverter(builder.factory(new CBORFactory()).build(),
+                meterRegistry, "cbor", MediaType.parseMediaType(CBOR_MEDIA_TYPE));
+    }
+
+    @Bean
+    public TimedJackson2BinaryHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder,
+                                                                             MeterRegistry meterRegistry) {
+        return new TimedJackson2BinaryHttpMessageConverter(builder.factory(new SmileFactory()).build(),
+                meterRegistry, "smile", MediaType.parseMediaType(SMILE_MEDIA_TYPE));
+    }
+
+    @Bean
+    public TimedJackson2BinaryHttpMessageConverter msgpackHttpMessageConverter(Jackson2ObjectMapperBuilder builder,
+                                                                               MeterRegistry meterRegistry) {
+        return new TimedJackson2BinaryHttpMessageConverter(builder.factory(new MessagePackFactory()).build(),
+                meterRegistry, "msgpack", MediaType.parseMediaType(MSGPACK_MEDIA_TYPE));
+    }
+}
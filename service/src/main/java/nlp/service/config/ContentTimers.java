@@ -0,0 +1,48 @@
+package nlp.service.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.lang.reflect.Type;
+
+
+/**
+ * Timers recording the time spent on reading the requests and writing the responses
+ * by the message converters, per each content format and type.
+ */
+class ContentTimers {
+
+    private final MeterRegistry meterRegistry;
+
+    private final String format;
+
+
+    ContentTimers(MeterRegistry meterRegistry, String format) {
+        this.meterRegistry = meterRegistry;
+        this.format = format;
+    }
+
+
+    Timer.Sample start() {
+        return Timer.start(meterRegistry);
+    }
+
+    Timer getReadTimer(Type type) {
+        return getTimer("nlp.service.content.read", type);
+    }
+
+    Timer getWriteTimer(Type type) {
+        return getTimer("nlp.service.content.write", type);
+    }
+
+
+    private Timer getTimer(String name, Type type) {
+        String typeName = type instanceof Class ? ((Class<?>) type).getSimpleName() : type.getTypeName();
+        return Timer.builder(name)
+                .description("Time spent on the content (de)serialization")
+                .tag("format", format)
+                .tag("type", typeName)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,23 @@
+package nlp.service.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+
+/**
+ * NLP service metrics configuration.
+ */
+@Configuration
+public class MetricsConfiguration {
+
+    /**
+     * JSON message converter replacing the default one, recording the (de)serialization time.
+     */
+    @Bean
+    public TimedMappingJackson2HttpMessageConverter timedMappingJackson2HttpMessageConverter(ObjectMapper objectMapper,
+                                                                                           MeterRegistry meterRegistry) {
+        return new TimedMappingJackson2HttpMessageConverter(objectMapper, meterRegistry);
+    }
+}
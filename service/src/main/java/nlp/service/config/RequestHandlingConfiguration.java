@@ -0,0 +1,54 @@
+package nlp.service.config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+
+/**
+ * Configuration of the threads handling the requests by the embedded server.
+ * When enabled, the requests are handled by virtual threads instead of the server thread pool,
+ * so that the blocking endpoints (e.g. streaming) do not limit the number of concurrent requests.
+ * The virtual threads executor is looked up at runtime, as it is only available in the recent JVMs.
+ */
+@Configuration
+public class RequestHandlingConfiguration {
+
+    private Logger log = LoggerFactory.getLogger(RequestHandlingConfiguration.class);
+
+
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> virtualThreadsCustomizer(ApplicationConfiguration config) {
+        return factory -> {
+            if (!config.isVirtualThreadsEnabled())
+                return;
+
+            ExecutorService executor = createVirtualThreadsExecutor();
+            if (executor == null)
+                return;
+
+            factory.addConnectorCustomizers(connector -> connector.getProtocolHandler().setExecutor(executor));
+            log.info("Handling the requests using virtual threads");
+        };
+    }
+
+
+    /**
+     * Returns the executor starting a new virtual thread per each task, or null when not supported by the JVM.
+     */
+    private ExecutorService createVirtualThreadsExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException e) {
+            log.warn("Virtual threads are not supported by the JVM: " + System.getProperty("java.version")
+                    + ", using the server thread pool");
+            return null;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package nlp.service.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+
+/**
+ * Message converter using a binary Jackson data format (such as CBOR, Smile or MessagePack),
+ * recording the time spent on reading the requests and writing the responses.
+ * The same content models are used as for JSON.
+ */
+public class TimedJackson2BinaryHttpMessageConverter extends AbstractJackson2HttpMessageConverter {
+
+    private final ContentTimers timers;
+
+
+    public TimedJackson2BinaryHttpMessageConverter(ObjectMapper objectMapper,
+                                                   MeterRegistry meterRegistry,
+                                                   String format,
+                                                   MediaType mediaType) {
+        super(objectMapper, mediaType);
+        this.timers = new ContentTimers(meterRegistry, format);
+    }
+
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage)
+            throws IOException, HttpMessageNotReadableException {
+        Timer.Sample sample = timers.start();
+        try {
+            return super.read(type, contextClass, inputMessage);
+        }
+        finally {
+            sample.stop(timers.getReadTimer(type));
+        }
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage)
+            throws IOException, HttpMessageNotReadableException {
+        Timer.Sample sample = timers.start();
+        try {
+            return super.readInternal(clazz, inputMessage);
+        }
+        finally {
+            sample.stop(timers.getReadTimer(clazz));
+        }
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        Timer.Sample sample = timers.start();
+        try {
+            super.writeInternal(object, type, outputMessage);
+        }
+        finally {
+            sample.stop(timers.getWriteTimer(object.getClass()));
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package nlp.service.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+
+/**
+ * JSON message converter recording the time spent on reading the requests
+ * and writing the responses by Jackson.
+ */
+public class TimedMappingJackson2HttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+    private final ContentTimers timers;
+
+
+    public TimedMappingJackson2HttpMessageConverter(ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        super(objectMapper);
+        this.timers = new ContentTimers(meterRegistry, "json");
+    }
+
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage)
+            throws IOException, HttpMessageNotReadableException {
+        Timer.Sample sample = timers.start();
+        try {
+            return super.read(type, contextClass, inputMessage);
+        }
+        finally {
+            sample.stop(timers.getReadTimer(type));
+        }
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage)
+            throws IOException, HttpMessageNotReadableException {
+        Timer.Sample sample = timers.start();
+        try {
+            return super.readInternal(clazz, inputMessage);
+        }
+        finally {
+            sample.stop(timers.getReadTimer(clazz));
+        }
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        Timer.Sample sample = timers.start();
+        try {
+            super.writeInternal(object, type, outputMessage);
+        }
+        finally {
+            sample.stop(timers.getWriteTimer(object.getClass()));
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package nlp.service.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import nlp.common.model.protocol.*;
+import nlp.service.NlpService;
+import nlp.service.job.ProcessingJob;
+import nlp.service.job.ProcessingJobManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.util.concurrent.RejectedExecutionException;
+
+
+/**
+ * NLP service controller for asynchronous processing of documents in bulk.
+ * The documents are submitted as a job, which results can be retrieved progressively,
+ * either in pages or streamed as newline-delimited JSON.
+ */
+@RestController
+public class ProcessingJobController {
+
+    @Autowired
+    private ProcessingJobManager jobManager;
+
+    @Autowired
+    private NlpService service;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+
+    /**
+     * Endpoints path specific configuration
+     */
+    private final String apiPathPrefix = "/**/api";
+    private final String apiFullPath = apiPathPrefix;
+
+    /**
+     * The maximum number of results returned in a single page.
+     */
+    private static final int MAX_RESULTS_PAGE_SIZE = 1000;
+
+    /**
+     * How long to wait for a single document to be processed when streaming the results.
+     */
+    private static final long STREAM_RESULT_WAIT_MS = 1000;
+
+    private Logger log = LoggerFactory.getLogger(ProcessingJobController.class);
+
+
+    /**
+     * Submits the content - documents in bulk - for asynchronous processing.
+     */
+    @PostMapping(value = apiFullPath + "/jobs")
+    public ResponseEntity<ServiceJobStatusContent> submitJob(@RequestBody ServiceBulkRequestContent content) {
+        return submitJobContent(null, content);
+    }
+
+
+    /**
+     * Submits the content for asynchronous processing using the named NLP application.
+     */
+    @PostMapping(value = apiFullPath + "/{application}/jobs")
+    public ResponseEntity<ServiceJobStatusContent> submitApplicationJob(@PathVariable String application,
+                                                                        @RequestBody ServiceBulkRequestContent content) {
+        if (!service.getApplications().contains(application)) {
+            final String message = "Unknown NLP application: " + application;
+            log.info(message);
+            return createErrorResponse(message, HttpStatus.NOT_FOUND);
+        }
+        return submitJobContent(application, content);
+    }
+
+
+    private ResponseEntity<ServiceJobStatusContent> submitJobContent(String application,
+                                                                     ServiceBulkRequestContent content) {
+        // check whether we need to perform any processing
+        //
+        if (content.getContent() == null || content.getContent().isEmpty()) {
+            final String message = "Empty content";
+            log.info(message);
+            return createErrorResponse(message, HttpStatus.BAD_REQUEST);
+        }
+
+        // submit the job
+        //
+        ProcessingJob job;
+        try {
+            job = jobManager.submit(application, content.getContent(), content.getApplicationParams());
+        }
+        catch (RejectedExecutionException e) {
+            final String message = "Too many processing jobs queued";
+            log.warn(message);
+            return createErrorResponse(message, HttpStatus.TOO_MANY_REQUESTS);
+        }
+
+        return new ResponseEntity<>(job.getStatusContent(), HttpStatus.ACCEPTED);
+    }
+
+
+    /**
+     * Returns the status of the processing job.
+     */
+    @GetMapping(value = apiFullPath + "/jobs/{jobId}")
+    public ResponseEntity<ServiceJobStatusContent> getJobStatus(@PathVariable String jobId) {
+        ProcessingJob job = jobManager.getJob(jobId);
+        if (job == null) {
+            return createErrorResponse("Job not found: " + jobId, HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(job.getStatusContent(), HttpStatus.OK);
+    }
+
+
+    /**
+     * Cancels the processing job and removes its results.
+     */
+    @DeleteMapping(value = apiFullPath + "/jobs/{jobId}")
+    public ResponseEntity<ServiceJobStatusContent> removeJob(@PathVariable String jobId) {
+        ProcessingJob job = jobManager.removeJob(jobId);
+        if (job == null) {
+            return createErrorResponse("Job not found: " + jobId, HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(job.getStatusContent(), HttpStatus.OK);
+    }
+
+
+    /**
+     * Returns a page of the results of the processing job available so far.
+     */
+    @GetMapping(value = apiFullPath + "/jobs/{jobId}/results")
+    public ResponseEntity<ServiceJobResultsContent> getJobResults(@PathVariable String jobId,
+                                                                  @RequestParam(defaultValue = "0") int offset,
+                                                                  @RequestParam(defaultValue = "100") int limit) {
+        ServiceJobResultsContent response = new ServiceJobResultsContent();
+        response.setJobId(jobId);
+
+        ProcessingJob job = jobManager.getJob(jobId);
+        if (job == null) {
+            response.setError(ProcessingError.builder().message("Job not found: " + jobId).build());
+            return new ResponseEntity<>(response, HttpStatus.NOT_FOUND);
+        }
+
+        if (offset < 0 || limit <= 0) {
+            response.setError(ProcessingError.builder().message("Invalid offset or limit").build());
+            return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+        }
+
+        response.setStatus(job.getStatus());
+        response.setOffset(offset);
+        response.setResult(job.getResults(offset, Math.min(limit, MAX_RESULTS_PAGE_SIZE)));
+        response.setNextOffset(offset + response.getResult().size());
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+
+    /**
+     * Streams the results of the processing job as newline-delimited JSON, in the order of submitted documents,
+     * as soon as they become available.
+     */
+    @GetMapping(value = apiFullPath + "/jobs/{jobId}/results/stream", produces = ServiceController.NDJSON_MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> streamJobResults(@PathVariable String jobId,
+                                                                  @RequestParam(defaultValue = "0") int offset) {
+        ProcessingJob job = jobManager.getJob(jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            try {
+                for (int i = Math.max(0, offset); i < job.getTotal(); ++i) {
+                    NlpProcessingResult result = null;
+                    while (result == null && !job.isFinished()) {
+                        result = job.awaitResult(i, STREAM_RESULT_WAIT_MS);
+                    }
+                    if (result == null) {
+                        result = job.getResult(i);
+                    }
+                    if (result == null) {
+                        // the job was cancelled
+                        break;
+                    }
+
+                    outputStream.write(objectMapper.writeValueAsBytes(result));
+                    outputStream.write('\n');
+                    outputStream.flush();
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(ServiceController.NDJSON_MEDIA_TYPE))
+                .body(body);
+    }
+
+
+    /**
+     * Helper functions
+     */
+    private ResponseEntity<ServiceJobStatusContent> createErrorResponse(String message, HttpStatus status) {
+        ServiceJobStatusContent response = new ServiceJobStatusContent();
+        response.setError(ProcessingError.builder().message(message).build());
+        return new ResponseEntity<>(response, status);
+    }
+}
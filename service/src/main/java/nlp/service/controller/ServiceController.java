@@ -1,18 +1,48 @@
 package nlp.service.controller;
 
 import com.fasterxml.jackson.annotation.JsonView;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import nlp.common.model.annotation.ColumnarAnnotations;
 import nlp.common.model.protocol.*;
 import nlp.service.config.ApplicationConfiguration;
 import nlp.service.config.JsonPropertyAccessView;
 import nlp.service.NlpService;
+import nlp.service.processor.NlpProcessor;
+import nlp.service.processor.ProcessingRejectedException;
+import nlp.service.processor.ProcessingTimeoutException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.time.OffsetDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 
 /**
@@ -31,6 +61,25 @@ public class ServiceController {
     @Autowired
     private NlpService service;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * The time spent on NLP processing by the service, per each endpoint.
+     */
+    private Timer processTimer;
+    private Timer processBulkTimer;
+    private Timer processStreamTimer;
+
+    /**
+     * Executor used to submit the documents read from the stream for processing, so that the applications
+     * processing on the calling thread do not block reading the stream.
+     */
+    private ExecutorService streamExecutor;
+
 
     /**
      * Endpoints path specific configuration
@@ -40,9 +89,41 @@ public class ServiceController {
     //private final String apiVersion = "v1";
     private final String apiFullPath = apiPathPrefix;
 
+    static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+
+    /**
+     * The header used by the clients to specify the time (in ms) after which the result is no longer needed.
+     */
+    static final String REQUEST_TIMEOUT_HEADER = "X-Request-Timeout";
+
+    /**
+     * The header used by the clients to specify the class of the request (e.g. interactive or backfill).
+     */
+    static final String REQUEST_CLASS_HEADER = "X-Request-Class";
+
     private Logger log = LoggerFactory.getLogger(ServiceController.class);
 
 
+    @PostConstruct
+    public void init() {
+        processTimer = createProcessTimer("process");
+        processBulkTimer = createProcessTimer("process_bulk");
+        processStreamTimer = createProcessTimer("process_stream");
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        streamExecutor = Executors.newFixedThreadPool(Math.max(1, config.getStreamMaxInFlight()), runnable -> {
+            Thread thread = new Thread(runnable, "StreamProcessingWorker-" + threadCounter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        streamExecutor.shutdownNow();
+    }
+
+
     /**
      * Returns the information about running NLP service, incl. its configuration.
      */
@@ -53,11 +134,64 @@ public class ServiceController {
     }
 
 
+    /**
+     * Returns the NLP service processing statistics.
+     */
+    @GetMapping(value = apiFullPath + "/stats")
+    public ResponseEntity<Map<String, Object>> stats() {
+        return new ResponseEntity<>(service.getStatistics(), HttpStatus.OK);
+    }
+
+
+    /**
+     * Returns the NLP service readiness, i.e. whether enough resources are available to start processing.
+     */
+    @GetMapping(value = apiFullPath + "/ready")
+    public ResponseEntity<Map<String, Object>> ready() {
+        boolean ready = service.isReady();
+        return new ResponseEntity<>(Map.of("ready", ready), ready ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+
     /**
      * Processes the content - a single document at once.
      */
     @PostMapping(value = apiFullPath + "/process")
-    public ResponseEntity<ServiceSingleResponseContent> process(@RequestBody /*@Valid*/ ServiceSingleRequestContent content) {
+    public CompletableFuture<ResponseEntity<ServiceSingleResponseContent>> process(@RequestBody /*@Valid*/ ServiceSingleRequestContent content,
+                                                                                   @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                                                   @RequestHeader(value = REQUEST_TIMEOUT_HEADER, required = false) Long timeoutMs,
+                                                                                   @RequestHeader(value = REQUEST_CLASS_HEADER, required = false) String requestClass) {
+        return processContent(null, content, accept, timeoutMs, requestClass);
+    }
+
+
+    /**
+     * Processes the content using the named NLP application - a single document at once.
+     */
+    @PostMapping(value = apiFullPath + "/{application}/process")
+    public CompletableFuture<ResponseEntity<ServiceSingleResponseContent>> processApplication(@PathVariable String application,
+                                                                                              @RequestBody /*@Valid*/ ServiceSingleRequestContent content,
+                                                                                              @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                                                              @RequestHeader(value = REQUEST_TIMEOUT_HEADER, required = false) Long timeoutMs,
+                                                                                              @RequestHeader(value = REQUEST_CLASS_HEADER, required = false) String requestClass) {
+        if (!service.getApplications().contains(application)) {
+            ServiceSingleResponseContent response = new ServiceSingleResponseContent();
+            response.setResult(createUnknownApplicationResult(application));
+            return CompletableFuture.completedFuture(new ResponseEntity<>(response, HttpStatus.NOT_FOUND));
+        }
+        return processContent(application, content, accept, timeoutMs, requestClass);
+    }
+
+
+    /**
+     * Processes the content without blocking the request thread, the response is written back
+     * once the NLP service completes the processing.
+     */
+    private CompletableFuture<ResponseEntity<ServiceSingleResponseContent>> processContent(String application,
+                                                                                           ServiceSingleRequestContent content,
+                                                                                           String accept,
+                                                                                           Long timeoutMs,
+                                                                                           String requestClass) {
 
         ServiceSingleResponseContent response = new ServiceSingleResponseContent();
 
@@ -71,29 +205,29 @@ public class ServiceController {
             response.setResult(result);
             log.info(message);
             HttpStatus status = config.isAppSingleDocEndpointFailOnEmptyContent() ? HttpStatus.BAD_REQUEST : HttpStatus.OK;
-            return new ResponseEntity<>(response, status);
+            return CompletableFuture.completedFuture(new ResponseEntity<>(response, status));
         }
 
         // process the content
         //
-        try {
-            NlpProcessingResult result = service.process(content.getContent(), content.getApplicationParams());
-            response.setResult(result);
-        }
-        catch (Exception e) {
-            final String message = "Error processing the query: " + e.getMessage();
-            log.error(message);
+        Map<String, String> applicationParams = getApplicationParams(content.getApplicationParams(), timeoutMs, requestClass);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        return service.processAsync(application, content.getContent(), applicationParams).handle((result, e) -> {
+            sample.stop(processTimer);
+            if (e != null) {
+                return createErrorResponse(response, response::setResult, e);
+            }
 
-            NlpProcessingResult result = new NlpProcessingResult();
-            result.setError(ProcessingError.builder().message(message).build());
+            if (isColumnarFormatRequested(accept, applicationParams)) {
+                ColumnarAnnotations.applyTo(result);
+            }
             response.setResult(result);
-            return new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR);
-        }
 
-        // set the original footer to return it back to the client
-        //
-        response.getResult().setFooter(content.getContent().getFooter());
-        return new ResponseEntity<>(response, HttpStatus.OK);
+            // set the original footer to return it back to the client
+            //
+            response.getResult().setFooter(content.getContent().getFooter());
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        });
     }
 
 
@@ -101,7 +235,41 @@ public class ServiceController {
      * Processes the content - documents in bulk.
      */
     @PostMapping(value = apiFullPath + "/process_bulk")
-    public ResponseEntity<ServiceBulkResponseContent> processBulk(@RequestBody /*@Valid*/ ServiceBulkRequestContent content) {
+    public CompletableFuture<ResponseEntity<ServiceBulkResponseContent>> processBulk(@RequestBody /*@Valid*/ ServiceBulkRequestContent content,
+                                                                                     @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                                                     @RequestHeader(value = REQUEST_TIMEOUT_HEADER, required = false) Long timeoutMs,
+                                                                                     @RequestHeader(value = REQUEST_CLASS_HEADER, required = false) String requestClass) {
+        return processBulkContent(null, content, accept, timeoutMs, requestClass);
+    }
+
+
+    /**
+     * Processes the content using the named NLP application - documents in bulk.
+     */
+    @PostMapping(value = apiFullPath + "/{application}/process_bulk")
+    public CompletableFuture<ResponseEntity<ServiceBulkResponseContent>> processBulkApplication(@PathVariable String application,
+                                                                                                @RequestBody /*@Valid*/ ServiceBulkRequestContent content,
+                                                                                                @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                                                                @RequestHeader(value = REQUEST_TIMEOUT_HEADER, required = false) Long timeoutMs,
+                                                                                                @RequestHeader(value = REQUEST_CLASS_HEADER, required = false) String requestClass) {
+        if (!service.getApplications().contains(application)) {
+            ServiceBulkResponseContent response = new ServiceBulkResponseContent();
+            response.setResult(List.of(createUnknownApplicationResult(application)));
+            return CompletableFuture.completedFuture(new ResponseEntity<>(response, HttpStatus.NOT_FOUND));
+        }
+        return processBulkContent(application, content, accept, timeoutMs, requestClass);
+    }
+
+
+    /**
+     * Processes the content without blocking the request thread, the response is written back
+     * once the NLP service completes the processing.
+     */
+    private CompletableFuture<ResponseEntity<ServiceBulkResponseContent>> processBulkContent(String application,
+                                                                                             ServiceBulkRequestContent content,
+                                                                                             String accept,
+                                                                                             Long timeoutMs,
+                                                                                             String requestClass) {
 
         ServiceBulkResponseContent response = new ServiceBulkResponseContent();
 
@@ -113,33 +281,280 @@ public class ServiceController {
             result.setError(ProcessingError.builder().message(message).build());
             response.setResult(List.of(result));
             log.info(message);
-            return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+            return CompletableFuture.completedFuture(new ResponseEntity<>(response, HttpStatus.BAD_REQUEST));
         }
 
         // process the content
         //
-        try {
-            List<NlpProcessingResult> result = service.processBulk(content.getContent(), content.getApplicationParams());
+        Map<String, String> applicationParams = getApplicationParams(content.getApplicationParams(), timeoutMs, requestClass);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        return service.processBulkAsync(application, content.getContent(), applicationParams).handle((result, e) -> {
+            sample.stop(processBulkTimer);
+            if (e != null) {
+                return createErrorResponse(response, error -> response.setResult(List.of(error)), e);
+            }
+
+            if (isColumnarFormatRequested(accept, applicationParams)) {
+                result.forEach(ColumnarAnnotations::applyTo);
+            }
             response.setResult(result);
+
+            // set the original footer to return it back to the client
+            //
+            assert response.getResult().size() == content.getContent().size();
+            for (int i = 0; i < response.getResult().size(); ++i) {
+                NlpProcessingResult res = response.getResult().get(i);
+                NlpInputPayload ctx = content.getContent().get(i);
+                res.setFooter(ctx.getFooter());
+            }
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        });
+    }
+
+
+    /**
+     * Processes the content - documents streamed as newline-delimited JSON, one payload per line.
+     * The documents are processed as soon as they are read and the results are streamed back as
+     * newline-delimited JSON, in the order of the input documents. The application parameters
+     * are provided as the request parameters. The client timeout applies to the whole stream.
+     */
+    @PostMapping(value = apiFullPath + "/process_stream", produces = NDJSON_MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> processStream(HttpServletRequest request,
+                                                               @RequestParam Map<String, String> applicationParams,
+                                                               @RequestHeader(value = REQUEST_TIMEOUT_HEADER, required = false) Long timeoutMs,
+                                                               @RequestHeader(value = REQUEST_CLASS_HEADER, required = false) String requestClass) throws IOException {
+        return processStreamContent(null, request, getApplicationParams(applicationParams, timeoutMs, requestClass));
+    }
+
+
+    /**
+     * Processes the content using the named NLP application - documents streamed as newline-delimited JSON.
+     */
+    @PostMapping(value = apiFullPath + "/{application}/process_stream", produces = NDJSON_MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> processStreamApplication(@PathVariable String application,
+                                                                          HttpServletRequest request,
+                                                                          @RequestParam Map<String, String> applicationParams,
+                                                                          @RequestHeader(value = REQUEST_TIMEOUT_HEADER, required = false) Long timeoutMs,
+                                                                          @RequestHeader(value = REQUEST_CLASS_HEADER, required = false) String requestClass) throws IOException {
+        if (!service.getApplications().contains(application)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .contentType(MediaType.parseMediaType(NDJSON_MEDIA_TYPE))
+                    .body(outputStream -> writeStreamResult(outputStream, createUnknownApplicationResult(application)));
         }
-        catch (Exception e) {
-            final String message = "Error processing the query: " + e.getMessage();
-            log.error(message);
+        return processStreamContent(application, request, getApplicationParams(applicationParams, timeoutMs, requestClass));
+    }
 
-            NlpProcessingResult result = new NlpProcessingResult();
+
+    private ResponseEntity<StreamingResponseBody> processStreamContent(String application,
+                                                                       HttpServletRequest request,
+                                                                       Map<String, String> streamParams) throws IOException {
+
+        InputStream inputStream = request.getInputStream();
+
+        StreamingResponseBody body = outputStream -> {
+            // the results are written back in the input order, hence keep only the documents in-flight
+            //
+            Deque<Future<NlpProcessingResult>> pendingResults = new ArrayDeque<>();
+            int maxInFlight = Math.max(1, config.getStreamMaxInFlight());
+
+            try (MappingIterator<NlpInputPayload> payloads = objectMapper.readerFor(NlpInputPayload.class)
+                    .readValues(inputStream)) {
+
+                while (payloads.hasNextValue()) {
+                    NlpInputPayload payload = payloads.nextValue();
+                    pendingResults.add(processStreamPayload(application, payload, streamParams));
+
+                    // write back the results available so far
+                    //
+                    while (!pendingResults.isEmpty()
+                            && (pendingResults.peek().isDone() || pendingResults.size() >= maxInFlight)) {
+                        writeStreamResult(outputStream, pendingResults.poll());
+                    }
+                }
+            }
+            catch (IOException | RuntimeException e) {
+                final String message = "Error reading the content: " + e.getMessage();
+                log.error(message);
+
+                // write back the results of the documents already read before reporting the error
+                //
+                while (!pendingResults.isEmpty()) {
+                    writeStreamResult(outputStream, pendingResults.poll());
+                }
+
+                NlpProcessingResult result = new NlpProcessingResult();
+                result.setTimestamp(OffsetDateTime.now());
+                result.setError(ProcessingError.builder().message(message).build());
+                writeStreamResult(outputStream, result);
+                return;
+            }
+
+            while (!pendingResults.isEmpty()) {
+                writeStreamResult(outputStream, pendingResults.poll());
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON_MEDIA_TYPE))
+                .body(body);
+    }
+
+
+    /**
+     * Helper functions
+     */
+    private Timer createProcessTimer(String endpoint) {
+        return Timer.builder("nlp.service.process")
+                .description("Time spent on NLP processing by the service")
+                .tag("endpoint", endpoint)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Checks whether the annotations are requested in the columnar format, either by the accepted
+     * media type or in the application parameters.
+     */
+    private static boolean isColumnarFormatRequested(String accept, Map<String, String> applicationParams) {
+        return (accept != null && accept.contains(ColumnarAnnotations.MEDIA_TYPE))
+                || ColumnarAnnotations.isRequested(applicationParams);
+    }
+
+    private static NlpProcessingResult createUnknownApplicationResult(String application) {
+        NlpProcessingResult result = new NlpProcessingResult();
+        result.setTimestamp(OffsetDateTime.now());
+        result.setError(ProcessingError.builder().message("Unknown NLP application: " + application).build());
+        return result;
+    }
+
+    /**
+     * Returns the application parameters including the request deadline, when the client specified the timeout,
+     * and the request class, when specified in the header.
+     */
+    private static Map<String, String> getApplicationParams(Map<String, String> applicationParams,
+                                                            Long timeoutMs,
+                                                            String requestClass) {
+        if (timeoutMs == null && requestClass == null)
+            return applicationParams;
+
+        Map<String, String> params = applicationParams != null ? new HashMap<>(applicationParams) : new HashMap<>();
+        if (timeoutMs != null) {
+            params.put(NlpProcessor.DEADLINE_PARAM, Long.toString(System.currentTimeMillis() + timeoutMs));
+        }
+        if (requestClass != null) {
+            params.put(NlpProcessor.REQUEST_CLASS_PARAM, requestClass);
+        }
+        return params;
+    }
+
+    /**
+     * Returns the response for the failed processing, setting the error result using the provided setter:
+     * 429 or 503 when rejected, 504 when timed out and 500 otherwise.
+     */
+    private <T> ResponseEntity<T> createErrorResponse(T response, Consumer<NlpProcessingResult> setResult, Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+
+        NlpProcessingResult result = new NlpProcessingResult();
+        setResult.accept(result);
+
+        if (error instanceof ProcessingRejectedException) {
+            final String message = "Query rejected: " + error.getMessage();
+            log.info(message);
             result.setError(ProcessingError.builder().message(message).build());
-            response.setResult(List.of(result));
-            return new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR);
+            return createRejectedResponse(response, (ProcessingRejectedException) error);
+        }
+        if (error instanceof ProcessingTimeoutException) {
+            final String message = "Query timed out: " + error.getMessage();
+            log.error(message);
+            result.setError(ProcessingError.builder().message(message).build());
+            return new ResponseEntity<>(response, HttpStatus.GATEWAY_TIMEOUT);
         }
 
-        // set the original footer to return it back to the client
+        final String message = "Error processing the query: " + error.getMessage();
+        log.error(message);
+        result.setError(ProcessingError.builder().message(message).build());
+        return new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    /**
+     * Returns the response for the rejected request: 429 when overloaded, 503 when the request could not
+     * be processed on time, with the suggested time to retry.
+     */
+    private static <T> ResponseEntity<T> createRejectedResponse(T response, ProcessingRejectedException e) {
+        HttpStatus status = e.getReason() == ProcessingRejectedException.Reason.QUEUE_FULL
+                ? HttpStatus.TOO_MANY_REQUESTS : HttpStatus.SERVICE_UNAVAILABLE;
+        return ResponseEntity.status(status)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(e.getRetryAfterSeconds()))
+                .body(response);
+    }
+
+    /**
+     * Processes the payload read from the stream asynchronously, within the request deadline and class,
+     * reporting the errors in the returned result.
+     */
+    private CompletableFuture<NlpProcessingResult> processStreamPayload(String application,
+                                                                       NlpInputPayload payload,
+                                                                       Map<String, String> applicationParams) {
+        // check whether we need to perform any processing
         //
-        assert response.getResult().size() == content.getContent().size();
-        for (int i = 0; i < response.getResult().size(); ++i) {
-            NlpProcessingResult res = response.getResult().get(i);
-            NlpInputPayload ctx = content.getContent().get(i);
-            res.setFooter(ctx.getFooter());
+        if (payload == null || payload.isEmpty()) {
+            NlpProcessingResult result = new NlpProcessingResult();
+            result.setTimestamp(OffsetDateTime.now());
+            result.setError(ProcessingError.builder().message("Empty content").build());
+            if (payload != null) {
+                result.setFooter(payload.getFooter());
+            }
+            return CompletableFuture.completedFuture(result);
         }
-        return new ResponseEntity<>(response, HttpStatus.OK);
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        return CompletableFuture.supplyAsync(() -> service.processAsync(application, payload, applicationParams), streamExecutor)
+                .thenCompose(Function.identity())
+                .handle((result, e) -> {
+                    sample.stop(processStreamTimer);
+                    if (e != null) {
+                        if (e instanceof CompletionException && e.getCause() != null) {
+                            e = e.getCause();
+                        }
+                        final String message = "Error processing the query: " + e.getMessage();
+                        log.error(message);
+
+                        result = new NlpProcessingResult();
+                        result.setTimestamp(OffsetDateTime.now());
+                        result.setError(ProcessingError.builder().message(message).build());
+                    }
+                    else if (ColumnarAnnotations.isRequested(applicationParams)) {
+                        ColumnarAnnotations.applyTo(result);
+                    }
+
+                    // set the original footer to return it back to the client
+                    //
+                    result.setFooter(payload.getFooter());
+                    return result;
+                });
+    }
+
+    private void writeStreamResult(OutputStream outputStream, Future<NlpProcessingResult> pendingResult) throws IOException {
+        NlpProcessingResult result;
+        try {
+            result = pendingResult.get();
+        }
+        catch (InterruptedException | ExecutionException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            result = new NlpProcessingResult();
+            result.setTimestamp(OffsetDateTime.now());
+            result.setError(ProcessingError.builder().message("Error processing the query: " + e.getMessage()).build());
+        }
+        writeStreamResult(outputStream, result);
+    }
+
+    private void writeStreamResult(OutputStream outputStream, NlpProcessingResult result) throws IOException {
+        outputStream.write(objectMapper.writeValueAsBytes(result));
+        outputStream.write('\n');
+        outputStream.flush();
     }
 }
@@ -0,0 +1,186 @@
+package nlp.service.job;
+
+import nlp.common.model.protocol.NlpInputPayload;
+import nlp.common.model.protocol.NlpProcessingResult;
+import nlp.common.model.protocol.ProcessingJobStatus;
+import nlp.common.model.protocol.ServiceJobStatusContent;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * An asynchronous NLP processing job over documents submitted in bulk.
+ * The results are available for retrieval as soon as the documents are processed.
+ */
+public class ProcessingJob {
+
+    private final String id;
+
+    /**
+     * The name of the NLP application processing the documents, null for the default one.
+     */
+    private final String application;
+
+    /**
+     * The documents to be processed -- these are released as soon as processed.
+     */
+    private final List<NlpInputPayload> content;
+
+    private final Map<String, String> applicationParams;
+
+    private final AtomicReferenceArray<NlpProcessingResult> results;
+
+    private volatile ProcessingJobStatus status = ProcessingJobStatus.QUEUED;
+
+    /**
+     * The number of processed documents -- the documents are processed in order,
+     * hence results [0, completed) are available.
+     */
+    private volatile int completed = 0;
+
+    private volatile int failed = 0;
+
+    private final OffsetDateTime submittedAt = OffsetDateTime.now();
+    private volatile OffsetDateTime startedAt;
+    private volatile OffsetDateTime finishedAt;
+
+
+    public ProcessingJob(String id, String application, List<NlpInputPayload> content,
+                         Map<String, String> applicationParams) {
+        this.id = id;
+        this.application = application;
+        this.content = new ArrayList<>(content);
+        this.applicationParams = applicationParams;
+        this.results = new AtomicReferenceArray<>(content.size());
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getApplication() {
+        return application;
+    }
+
+    public Map<String, String> getApplicationParams() {
+        return applicationParams;
+    }
+
+    public int getTotal() {
+        return results.length();
+    }
+
+    public int getCompleted() {
+        return completed;
+    }
+
+    public ProcessingJobStatus getStatus() {
+        return status;
+    }
+
+    public OffsetDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public boolean isFinished() {
+        return status == ProcessingJobStatus.COMPLETED || status == ProcessingJobStatus.CANCELLED;
+    }
+
+
+    /**
+     * Returns the documents [from, to) to be processed.
+     */
+    List<NlpInputPayload> getContent(int from, int to) {
+        return new ArrayList<>(content.subList(from, to));
+    }
+
+    /**
+     * Returns the result of the document at the given index or null if not yet processed.
+     */
+    public NlpProcessingResult getResult(int idx) {
+        return results.get(idx);
+    }
+
+    /**
+     * Returns the available results from the given offset up to the limit.
+     */
+    public List<NlpProcessingResult> getResults(int offset, int limit) {
+        List<NlpProcessingResult> page = new ArrayList<>();
+        int to = Math.min(completed, offset + limit);
+        for (int i = offset; i < to; ++i) {
+            page.add(results.get(i));
+        }
+        return page;
+    }
+
+    /**
+     * Waits until the result of the document at the given index is available or the job finished.
+     */
+    public synchronized NlpProcessingResult awaitResult(int idx, long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (idx >= completed && !isFinished()) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                break;
+            }
+            wait(remaining);
+        }
+        return results.get(idx);
+    }
+
+
+    synchronized void markStarted() {
+        status = ProcessingJobStatus.RUNNING;
+        startedAt = OffsetDateTime.now();
+        notifyAll();
+    }
+
+    /**
+     * Stores the results of the documents starting at the given index and releases their content.
+     */
+    synchronized void addResults(int from, List<NlpProcessingResult> chunkResults) {
+        for (int i = 0; i < chunkResults.size(); ++i) {
+            NlpProcessingResult result = chunkResults.get(i);
+            if (result.getSuccess() == null || !result.getSuccess()) {
+                failed++;
+            }
+            results.set(from + i, result);
+            content.set(from + i, null);
+        }
+        completed = from + chunkResults.size();
+        notifyAll();
+    }
+
+    synchronized void markFinished(ProcessingJobStatus finalStatus) {
+        if (!isFinished()) {
+            status = finalStatus;
+            finishedAt = OffsetDateTime.now();
+        }
+        notifyAll();
+    }
+
+    public synchronized void cancel() {
+        markFinished(ProcessingJobStatus.CANCELLED);
+    }
+
+
+    /**
+     * Returns the current job status description.
+     */
+    public ServiceJobStatusContent getStatusContent() {
+        ServiceJobStatusContent statusContent = new ServiceJobStatusContent();
+        statusContent.setJobId(id);
+        statusContent.setStatus(status);
+        statusContent.setTotal(getTotal());
+        statusContent.setCompleted(completed);
+        statusContent.setFailed(failed);
+        statusContent.setSubmittedAt(submittedAt);
+        statusContent.setStartedAt(startedAt);
+        statusContent.setFinishedAt(finishedAt);
+        return statusContent;
+    }
+}
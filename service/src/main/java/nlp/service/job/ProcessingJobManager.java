@@ -0,0 +1,172 @@
+package nlp.service.job;
+
+import nlp.common.model.annotation.ColumnarAnnotations;
+import nlp.common.model.protocol.NlpInputPayload;
+import nlp.common.model.protocol.NlpProcessingResult;
+import nlp.common.model.protocol.ProcessingError;
+import nlp.common.model.protocol.ProcessingJobStatus;
+import nlp.service.NlpService;
+import nlp.service.config.ApplicationConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Manages the asynchronous NLP processing jobs. The submitted jobs are kept in a bounded queue
+ * and processed in chunks using the NLP service, so that the results become available progressively.
+ */
+@Component
+public class ProcessingJobManager {
+
+    @Autowired
+    private ApplicationConfiguration config;
+
+    @Autowired
+    private NlpService service;
+
+    private final Map<String, ProcessingJob> jobs = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor jobExecutor;
+
+    private ScheduledExecutorService cleanupExecutor;
+
+    private Logger log = LoggerFactory.getLogger(ProcessingJobManager.class);
+
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCounter = new AtomicInteger();
+        jobExecutor = new ThreadPoolExecutor(config.getJobsWorkersNum(), config.getJobsWorkersNum(),
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, config.getJobsMaxQueued())),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "ProcessingJobWorker-" + threadCounter.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        // periodically remove the finished jobs that exceeded the retention time
+        cleanupExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ProcessingJobCleanup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        cleanupExecutor.scheduleWithFixedDelay(this::removeExpiredJobs, 1, 1, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdownNow();
+        cleanupExecutor.shutdownNow();
+    }
+
+
+    /**
+     * Submits the documents for asynchronous processing using the named application, or the default one
+     * when the name is null. Throws RejectedExecutionException when the jobs queue is full.
+     */
+    public ProcessingJob submit(String application, List<NlpInputPayload> content, Map<String, String> applicationParams) {
+        ProcessingJob job = new ProcessingJob(UUID.randomUUID().toString(), application, content, applicationParams);
+
+        jobs.put(job.getId(), job);
+        try {
+            jobExecutor.execute(() -> runJob(job));
+        }
+        catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw e;
+        }
+
+        log.info("Submitted processing job: " + job.getId() + " with " + job.getTotal() + " documents");
+        return job;
+    }
+
+    /**
+     * Returns the job or null if not found.
+     */
+    public ProcessingJob getJob(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    /**
+     * Cancels the job and removes it together with its results.
+     */
+    public ProcessingJob removeJob(String jobId) {
+        ProcessingJob job = jobs.remove(jobId);
+        if (job != null) {
+            job.cancel();
+            log.info("Removed processing job: " + jobId);
+        }
+        return job;
+    }
+
+
+    /**
+     * Processes the job documents in chunks, storing the results as soon as available.
+     */
+    private void runJob(ProcessingJob job) {
+        if (job.isFinished()) {
+            return;
+        }
+
+        job.markStarted();
+        log.info("Started processing job: " + job.getId());
+
+        int chunkSize = Math.max(1, config.getJobsChunkSize());
+        for (int from = 0; from < job.getTotal() && !job.isFinished(); from += chunkSize) {
+            int to = Math.min(from + chunkSize, job.getTotal());
+            List<NlpInputPayload> chunk = job.getContent(from, to);
+
+            List<NlpProcessingResult> chunkResults;
+            try {
+                chunkResults = service.processBulk(job.getApplication(), chunk, job.getApplicationParams());
+                if (ColumnarAnnotations.isRequested(job.getApplicationParams())) {
+                    chunkResults.forEach(ColumnarAnnotations::applyTo);
+                }
+            }
+            catch (Exception e) {
+                final String message = "Error processing the query: " + e.getMessage();
+                log.error("Job " + job.getId() + ": " + message);
+
+                chunkResults = new ArrayList<>();
+                for (int i = from; i < to; ++i) {
+                    NlpProcessingResult result = new NlpProcessingResult();
+                    result.setTimestamp(OffsetDateTime.now());
+                    result.setError(ProcessingError.builder().message(message).build());
+                    chunkResults.add(result);
+                }
+            }
+
+            // set the original footer to return it back to the client
+            //
+            for (int i = 0; i < chunkResults.size(); ++i) {
+                chunkResults.get(i).setFooter(chunk.get(i).getFooter());
+            }
+
+            job.addResults(from, chunkResults);
+        }
+
+        job.markFinished(ProcessingJobStatus.COMPLETED);
+        log.info("Finished processing job: " + job.getId() + " with status: " + job.getStatus());
+    }
+
+    /**
+     * Removes the finished jobs that exceeded the retention time.
+     */
+    private void removeExpiredJobs() {
+        OffsetDateTime expiryTime = OffsetDateTime.now().minusMinutes(config.getJobsRetentionMinutes());
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(expiryTime));
+    }
+}
@@ -10,6 +10,18 @@ import nlp.common.model.document.GenericDocument;
  */
 public abstract class NlpProcessor {
 
+    /**
+     * The runtime parameter with the client deadline (as epoch time in ms), after which
+     * the documents are no longer to be processed.
+     */
+    public static final String DEADLINE_PARAM = "requestDeadline";
+
+    /**
+     * The runtime parameter with the class of the request (e.g. interactive or backfill),
+     * which determines the share of the processing resources used.
+     */
+    public static final String REQUEST_CLASS_PARAM = "requestClass";
+
     /**
      * Processes provided single Generic Document and extract all the annotations (w. document-level features).
      */
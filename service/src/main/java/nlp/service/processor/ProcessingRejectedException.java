@@ -0,0 +1,46 @@
+package nlp.service.processor;
+
+
+/**
+ * Thrown when the NLP processor refuses to process the request, as it is currently overloaded
+ * or the request could not be processed within the allowed time.
+ * The client can retry the request after the suggested time.
+ */
+public class ProcessingRejectedException extends RuntimeException {
+
+    public enum Reason {
+        /**
+         * Too many requests are already waiting for processing.
+         */
+        QUEUE_FULL,
+
+        /**
+         * The request has been waiting for processing for too long.
+         */
+        WAIT_TIMEOUT,
+
+        /**
+         * The deadline set by the client has passed before the processing could start.
+         */
+        DEADLINE_EXCEEDED
+    }
+
+    private final Reason reason;
+
+    private final long retryAfterSeconds;
+
+
+    public ProcessingRejectedException(Reason reason, long retryAfterSeconds, String message) {
+        super(message);
+        this.reason = reason;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
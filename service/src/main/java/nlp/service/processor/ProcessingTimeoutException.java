@@ -0,0 +1,13 @@
+package nlp.service.processor;
+
+
+/**
+ * Thrown when the NLP processor could not complete the processing of the documents within the allowed time,
+ * in which case the processing is interrupted.
+ */
+public class ProcessingTimeoutException extends RuntimeException {
+
+    public ProcessingTimeoutException(String message) {
+        super(message);
+    }
+}
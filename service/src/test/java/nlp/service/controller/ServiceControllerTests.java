@@ -13,14 +13,25 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import nlp.common.model.protocol.NlpInputPayload;
 import nlp.common.model.protocol.NlpProcessingResult;
 import nlp.common.model.protocol.ServiceBulkResponseContent;
+import nlp.common.model.annotation.ColumnarAnnotations;
 import nlp.common.model.annotation.GenericAnnotation;
 import nlp.common.model.document.GenericDocument;
+import nlp.common.model.protocol.ServiceSingleRequestContent;
 import nlp.common.model.protocol.ServiceSingleResponseContent;
+import nlp.common.model.protocol.ProcessingJobStatus;
+import nlp.common.model.protocol.ServiceJobResultsContent;
+import nlp.common.model.protocol.ServiceJobStatusContent;
+import nlp.service.config.ContentFormatsConfiguration;
 import nlp.service.utils.TestUtils;
 
 
@@ -37,7 +48,14 @@ public abstract class ServiceControllerTests {
 
     final private String PROCESS_ENDPOINT_URL = "/api/process";
     final private String PROCESS_BULK_ENDPOINT_URL = "/api/process_bulk";
+    final private String APP_PROCESS_ENDPOINT_URL = "/api/drug-all/process";
+    final private String UNKNOWN_APP_PROCESS_ENDPOINT_URL = "/api/unknown-app/process";
     final private String INFO_ENDPOINT_URL = "/api/info";
+    final private String READY_ENDPOINT_URL = "/api/ready";
+    final private String PROCESS_STREAM_ENDPOINT_URL = "/api/process_stream";
+    final private String JOBS_ENDPOINT_URL = "/api/jobs";
+    final private String APP_JOBS_ENDPOINT_URL = "/api/drug-all/jobs";
+    final private String UNKNOWN_APP_JOBS_ENDPOINT_URL = "/api/unknown-app/jobs";
 
 
     @Test
@@ -52,6 +70,21 @@ public abstract class ServiceControllerTests {
     }
 
 
+    @Test
+    public void testGetReadiness() throws Exception {
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders
+                    .get(READY_ENDPOINT_URL)
+                    .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andReturn();
+
+        int status = result.getResponse().getStatus();
+        assertEquals(HttpStatus.OK.value(), status, "Incorrect Response Status");
+
+        JSONObject response = new JSONObject(result.getResponse().getContentAsString());
+        assertEquals(true, response.getBoolean("ready"), "Service not ready");
+    }
+
+
     /**
      * Test empty or blank documents, one document at time.
      */
@@ -59,7 +92,7 @@ public abstract class ServiceControllerTests {
     public void testProcessEmptyPayload() throws Exception {
         GenericDocument inDoc = TestUtils.createEmptyDocument();
 
-        MvcResult result = mockMvc.perform(MockMvcRequestBuilders
+        MvcResult result = performAsync(MockMvcRequestBuilders
                     .post(PROCESS_ENDPOINT_URL)
                     .contentType(MediaType.APPLICATION_JSON_UTF8)
                     .accept(MediaType.APPLICATION_JSON_UTF8)
@@ -77,7 +110,7 @@ public abstract class ServiceControllerTests {
         List<GenericDocument> inDocs = TestUtils.createBlankDocuments();
 
         for (GenericDocument doc : inDocs) {
-            MvcResult result = mockMvc.perform(MockMvcRequestBuilders
+            MvcResult result = performAsync(MockMvcRequestBuilders
                         .post(PROCESS_ENDPOINT_URL)
                         .contentType(MediaType.APPLICATION_JSON_UTF8)
                         .accept(MediaType.APPLICATION_JSON_UTF8)
@@ -109,7 +142,7 @@ public abstract class ServiceControllerTests {
 
         GenericDocument inDoc = TestUtils.createShortDocument();
 
-        MvcResult result = mockMvc.perform(MockMvcRequestBuilders
+        MvcResult result = performAsync(MockMvcRequestBuilders
                 .post(PROCESS_ENDPOINT_URL)
                 .contentType(MediaType.APPLICATION_JSON_UTF8)
                 .accept(MediaType.APPLICATION_JSON_UTF8)
@@ -139,12 +172,137 @@ public abstract class ServiceControllerTests {
     }
 
 
+    /**
+     * Test example documents, processed by the named application returning all the annotations.
+     */
+    @Test
+    public void testProcessExampleDocumentNamedApplication() throws Exception {
+
+        GenericDocument inDoc = TestUtils.createShortDocument();
+
+        MvcResult result = performAsync(MockMvcRequestBuilders
+                .post(APP_PROCESS_ENDPOINT_URL)
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .accept(MediaType.APPLICATION_JSON_UTF8)
+                .content(createPayload(inDoc)))
+                .andReturn();
+
+        int status = result.getResponse().getStatus();
+        assertEquals(HttpStatus.OK.value(), status, "Incorrect Response Status");
+
+        // parse the content
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        ServiceSingleResponseContent response = mapper.readValue(result.getResponse().getContentAsString(),
+                                                            ServiceSingleResponseContent.class);
+
+        assertEquals(true, response.getResult().getSuccess(), "Invalid processing status");
+
+        // should be more annotations returned than the drug names only
+        List<GenericAnnotation> annotations = response.getResult().getAnnotations();
+        assertEquals(true, annotations.size() > 1, "Returned annotations");
+    }
+
+
+    @Test
+    public void testProcessExampleDocumentUnknownApplication() throws Exception {
+
+        GenericDocument inDoc = TestUtils.createShortDocument();
+
+        MvcResult result = performAsync(MockMvcRequestBuilders
+                .post(UNKNOWN_APP_PROCESS_ENDPOINT_URL)
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .accept(MediaType.APPLICATION_JSON_UTF8)
+                .content(createPayload(inDoc)))
+                .andReturn();
+
+        int status = result.getResponse().getStatus();
+        assertEquals(HttpStatus.NOT_FOUND.value(), status, "Incorrect Response Status");
+    }
+
+
+    /**
+     * Test example documents, with the annotations returned in the columnar format.
+     */
+    @Test
+    public void testProcessExampleDocumentDrugNamesColumnar() throws Exception {
+
+        GenericDocument inDoc = TestUtils.createShortDocument();
+
+        MvcResult result = performAsync(MockMvcRequestBuilders
+                .post(PROCESS_ENDPOINT_URL)
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .accept(ColumnarAnnotations.MEDIA_TYPE)
+                .content(createPayload(inDoc)))
+                .andReturn();
+
+        int status = result.getResponse().getStatus();
+        assertEquals(HttpStatus.OK.value(), status, "Incorrect Response Status");
+
+        // parse the content
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        ServiceSingleResponseContent response = mapper.readValue(result.getResponse().getContentAsString(),
+                                                            ServiceSingleResponseContent.class);
+
+        assertEquals(true, response.getResult().getSuccess(), "Invalid processing status");
+        assertEquals(null, response.getResult().getAnnotations(), "Returned annotations");
+
+        // should be only one annotation returned
+        List<GenericAnnotation> annotations = response.getResult().getColumnarAnnotations().toAnnotations();
+        assertEquals(1, annotations.size(), "Returned annotations");
+
+        GenericAnnotation ann = annotations.get(0);
+        assertEquals("prozac", ann.getAttributes().get("name").toString().toLowerCase());
+        assertEquals("drug", ann.getAttributes().get("majorType").toString().toLowerCase());
+        assertEquals("medication", ann.getAttributes().get("minorType").toString().toLowerCase());
+    }
+
+
+    /**
+     * Test example documents, with the request and response content encoded in CBOR.
+     */
+    @Test
+    public void testProcessExampleDocumentDrugNamesCbor() throws Exception {
+
+        ObjectMapper mapper = new ObjectMapper(new CBORFactory());
+        mapper.registerModule(new JavaTimeModule());
+
+        NlpInputPayload payload = new NlpInputPayload();
+        payload.setText(TestUtils.createShortDocument().getText());
+        ServiceSingleRequestContent request = new ServiceSingleRequestContent();
+        request.setContent(payload);
+
+        MvcResult result = performAsync(MockMvcRequestBuilders
+                .post(PROCESS_ENDPOINT_URL)
+                .contentType(ContentFormatsConfiguration.CBOR_MEDIA_TYPE)
+                .accept(ContentFormatsConfiguration.CBOR_MEDIA_TYPE)
+                .content(mapper.writeValueAsBytes(request)))
+                .andReturn();
+
+        int status = result.getResponse().getStatus();
+        assertEquals(HttpStatus.OK.value(), status, "Incorrect Response Status");
+        assertEquals(ContentFormatsConfiguration.CBOR_MEDIA_TYPE, result.getResponse().getContentType());
+
+        // parse the content
+        ServiceSingleResponseContent response = mapper.readValue(result.getResponse().getContentAsByteArray(),
+                                                            ServiceSingleResponseContent.class);
+
+        assertEquals(true, response.getResult().getSuccess(), "Invalid processing status");
+
+        // should be only one annotation returned
+        List<GenericAnnotation> annotations = response.getResult().getAnnotations();
+        assertEquals(1, annotations.size(), "Returned annotations");
+        assertEquals("prozac", annotations.get(0).getAttributes().get("name").toString().toLowerCase());
+    }
+
+
     @Test
     public void testProcessACMDDocumentDrugNames() throws Exception {
 
         GenericDocument inDoc = TestUtils.createACMDocument();
 
-        MvcResult result = mockMvc.perform(MockMvcRequestBuilders
+        MvcResult result = performAsync(MockMvcRequestBuilders
                 .post(PROCESS_ENDPOINT_URL)
                 .contentType(MediaType.APPLICATION_JSON_UTF8)
                 .accept(MediaType.APPLICATION_JSON_UTF8)
@@ -172,7 +330,7 @@ public abstract class ServiceControllerTests {
 
         List<GenericDocument> inDocs = TestUtils.createBlankDocuments();
 
-        MvcResult result = mockMvc.perform(MockMvcRequestBuilders
+        MvcResult result = performAsync(MockMvcRequestBuilders
                 .post(PROCESS_BULK_ENDPOINT_URL)
                 .contentType(MediaType.APPLICATION_JSON_UTF8)
                 .accept(MediaType.APPLICATION_JSON_UTF8)
@@ -206,7 +364,7 @@ public abstract class ServiceControllerTests {
         inDocs.add(TestUtils.createShortDocument());
         inDocs.add(TestUtils.createACMDocument());
 
-        MvcResult result = mockMvc.perform(MockMvcRequestBuilders
+        MvcResult result = performAsync(MockMvcRequestBuilders
                 .post(PROCESS_BULK_ENDPOINT_URL)
                 .contentType(MediaType.APPLICATION_JSON_UTF8)
                 .accept(MediaType.APPLICATION_JSON_UTF8)
@@ -231,9 +389,154 @@ public abstract class ServiceControllerTests {
     }
 
 
+    /**
+     * Process valid documents streamed as newline-delimited JSON
+     */
+    @Test
+    public void processExampleDocumentsStream() throws Exception {
+        List<GenericDocument> inDocs = new ArrayList<>();
+        inDocs.add(TestUtils.createShortDocument());
+        inDocs.add(TestUtils.createACMDocument());
+        inDocs.add(TestUtils.createShortDocument());
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders
+                .post(PROCESS_STREAM_ENDPOINT_URL)
+                .contentType("application/x-ndjson")
+                .content(createPayloadStream(inDocs)))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        result = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result)).andReturn();
+
+        int status = result.getResponse().getStatus();
+        assertEquals(HttpStatus.OK.value(), status, "Incorrect Response Status");
+
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+
+        // there should be one result per line, in the order of the input documents
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        assertEquals(inDocs.size(), lines.length, "Returned results");
+
+        for (int i = 0; i < lines.length; ++i) {
+            NlpProcessingResult res = mapper.readValue(lines[i], NlpProcessingResult.class);
+            assertEquals(true, res.getSuccess(), "Invalid processing status");
+            assertEquals(inDocs.get(i).getText(), res.getText(), "Invalid results order");
+            assertNotEquals(0, res.getAnnotations().size(), "Returned no annotations");
+        }
+    }
+
+
+    /**
+     * Process valid documents asynchronously as a job
+     */
+    @Test
+    public void processExampleDocumentsJob() throws Exception {
+        List<GenericDocument> inDocs = new ArrayList<>();
+        inDocs.add(TestUtils.createShortDocument());
+        inDocs.add(TestUtils.createACMDocument());
+
+        ServiceJobResultsContent response = runJob(JOBS_ENDPOINT_URL, inDocs);
+        assertEquals(inDocs.size(), response.getResult().size(), "Returned results");
+
+        for (NlpProcessingResult res : response.getResult()) {
+            assertEquals(true, res.getSuccess(), "Invalid processing status");
+            assertNotEquals(0, res.getAnnotations().size(), "Returned no annotations");
+        }
+    }
+
+
+    /**
+     * Process valid documents asynchronously as a job, using the named application
+     */
+    @Test
+    public void processExampleDocumentsNamedApplicationJob() throws Exception {
+        List<GenericDocument> inDocs = new ArrayList<>();
+        inDocs.add(TestUtils.createShortDocument());
+
+        ServiceJobResultsContent response = runJob(APP_JOBS_ENDPOINT_URL, inDocs);
+        assertEquals(inDocs.size(), response.getResult().size(), "Returned results");
+
+        // should be more annotations returned than the drug names only
+        NlpProcessingResult res = response.getResult().get(0);
+        assertEquals(true, res.getSuccess(), "Invalid processing status");
+        assertEquals(true, res.getAnnotations().size() > 1, "Returned annotations");
+    }
+
+
+    @Test
+    public void processExampleDocumentsUnknownApplicationJob() throws Exception {
+        List<GenericDocument> inDocs = new ArrayList<>();
+        inDocs.add(TestUtils.createShortDocument());
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders
+                .post(UNKNOWN_APP_JOBS_ENDPOINT_URL)
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .accept(MediaType.APPLICATION_JSON_UTF8)
+                .content(createPayloadBulk(inDocs)))
+                .andReturn();
+
+        assertEquals(HttpStatus.NOT_FOUND.value(), result.getResponse().getStatus(), "Incorrect Response Status");
+    }
+
+
     /**
      * Helper functions
      */
+    /**
+     * Submits the documents as a job, waits for the job to complete and returns its results.
+     */
+    private ServiceJobResultsContent runJob(String jobsUrl, List<GenericDocument> inDocs) throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+
+        // submit the job
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders
+                .post(jobsUrl)
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .accept(MediaType.APPLICATION_JSON_UTF8)
+                .content(createPayloadBulk(inDocs)))
+                .andReturn();
+
+        assertEquals(HttpStatus.ACCEPTED.value(), result.getResponse().getStatus(), "Incorrect Response Status");
+
+        ServiceJobStatusContent jobStatus = mapper.readValue(result.getResponse().getContentAsString(),
+                ServiceJobStatusContent.class);
+        assertEquals(inDocs.size(), jobStatus.getTotal().intValue());
+
+        // wait for the job to complete
+        for (int i = 0; i < 100 && jobStatus.getStatus() != ProcessingJobStatus.COMPLETED; ++i) {
+            Thread.sleep(100);
+            result = mockMvc.perform(MockMvcRequestBuilders
+                    .get(JOBS_ENDPOINT_URL + "/" + jobStatus.getJobId())
+                    .accept(MediaType.APPLICATION_JSON_UTF8))
+                    .andReturn();
+            jobStatus = mapper.readValue(result.getResponse().getContentAsString(), ServiceJobStatusContent.class);
+        }
+        assertEquals(ProcessingJobStatus.COMPLETED, jobStatus.getStatus(), "Job not completed");
+
+        // retrieve the results
+        result = mockMvc.perform(MockMvcRequestBuilders
+                .get(JOBS_ENDPOINT_URL + "/" + jobStatus.getJobId() + "/results")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andReturn();
+
+        assertEquals(HttpStatus.OK.value(), result.getResponse().getStatus(), "Incorrect Response Status");
+
+        return mapper.readValue(result.getResponse().getContentAsString(), ServiceJobResultsContent.class);
+    }
+
+    /**
+     * Performs the request processed asynchronously by the endpoint, dispatching back its result.
+     */
+    private ResultActions performAsync(RequestBuilder request) throws Exception {
+        MvcResult result = mockMvc.perform(request)
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        return mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result));
+    }
+
     static private String createPayload(GenericDocument doc) throws Exception {
         JSONObject json = new JSONObject()
                 .put("content", new JSONObject()
@@ -241,6 +544,17 @@ public abstract class ServiceControllerTests {
         return json.toString();
     }
 
+    static private String createPayloadStream(List<GenericDocument> docs) throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (GenericDocument doc : docs) {
+            content.append(new JSONObject()
+                    .put("text", doc.getText())
+                    .toString())
+                    .append("\n");
+        }
+        return content.toString();
+    }
+
     static private String createPayloadBulk(List<GenericDocument> docs) throws Exception {
 
         JSONArray jsonContent = new JSONArray();